@@ -1,5 +1,19 @@
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.stream.IntStream;
+
 public class Calculator {
 
+	/**
+	 * Minimum array length from which sum and product are computed in parallel.
+	 */
+	public static final int PARALLEL_THRESHOLD = 1 << 16;
+
+	// Number of elements copied out of (and back into) buffers at a time
+	private static final int BUFFER_CHUNK = 1 << 12;
+
 	public static int add(int x, int y) {
 		return x + y;
 	}
@@ -12,4 +26,201 @@ public class Calculator {
 		return x * y;
 	}
 
+	/**
+	 * Stores a[i] + b[i] in out[i], wrapping on overflow like add(int, int).
+	 * 
+	 * @return the indexes i whose result overflowed
+	 */
+	public static BitSet add(int[] a, int[] b, int[] out) {
+		checkLengths(a.length, b.length, out.length);
+		long[] overflows = new long[(a.length + 63) >>> 6];
+		// Blocks of 64 elements, so each block's overflow mask is built in a
+		// register and the element loop stays free of branches
+		for (int from = 0; from < a.length; from += 64) {
+			int to = Math.min(from + 64, a.length);
+			long mask = 0;
+			for (int i = from; i < to; i++) {
+				int x = a[i], y = b[i], r = x + y;
+				out[i] = r;
+				mask |= (long) (((x ^ r) & (y ^ r)) >>> 31) << (i - from);
+			}
+			overflows[from >>> 6] = mask;
+		}
+		return BitSet.valueOf(overflows);
+	}
+
+	/**
+	 * Stores a[i] - b[i] in out[i], wrapping on overflow like subtract(int, int).
+	 * 
+	 * @return the indexes i whose result overflowed
+	 */
+	public static BitSet subtract(int[] a, int[] b, int[] out) {
+		checkLengths(a.length, b.length, out.length);
+		long[] overflows = new long[(a.length + 63) >>> 6];
+		for (int from = 0; from < a.length; from += 64) {
+			int to = Math.min(from + 64, a.length);
+			long mask = 0;
+			for (int i = from; i < to; i++) {
+				int x = a[i], y = b[i], r = x - y;
+				out[i] = r;
+				mask |= (long) (((x ^ y) & (x ^ r)) >>> 31) << (i - from);
+			}
+			overflows[from >>> 6] = mask;
+		}
+		return BitSet.valueOf(overflows);
+	}
+
+	/**
+	 * Stores a[i] * b[i] in out[i], wrapping on overflow like multiply(int, int).
+	 * 
+	 * @return the indexes i whose result overflowed
+	 */
+	public static BitSet multiply(int[] a, int[] b, int[] out) {
+		checkLengths(a.length, b.length, out.length);
+		long[] overflows = new long[(a.length + 63) >>> 6];
+		for (int from = 0; from < a.length; from += 64) {
+			int to = Math.min(from + 64, a.length);
+			long mask = 0;
+			for (int i = from; i < to; i++) {
+				long p = (long) a[i] * b[i];
+				int r = (int) p;
+				out[i] = r;
+				mask |= (r != p ? 1L : 0L) << (i - from);
+			}
+			overflows[from >>> 6] = mask;
+		}
+		return BitSet.valueOf(overflows);
+	}
+
+	/**
+	 * Stores a[i] + b[i] in out[i], which cannot overflow.
+	 */
+	public static void addWidening(int[] a, int[] b, long[] out) {
+		checkLengths(a.length, b.length, out.length);
+		for (int i = 0; i < a.length; i++)
+			out[i] = (long) a[i] + b[i];
+	}
+
+	/**
+	 * Stores a[i] - b[i] in out[i], which cannot overflow.
+	 */
+	public static void subtractWidening(int[] a, int[] b, long[] out) {
+		checkLengths(a.length, b.length, out.length);
+		for (int i = 0; i < a.length; i++)
+			out[i] = (long) a[i] - b[i];
+	}
+
+	/**
+	 * Stores a[i] * b[i] in out[i], which cannot overflow.
+	 */
+	public static void multiplyWidening(int[] a, int[] b, long[] out) {
+		checkLengths(a.length, b.length, out.length);
+		for (int i = 0; i < a.length; i++)
+			out[i] = (long) a[i] * b[i];
+	}
+
+	/**
+	 * Adds the remaining elements of a and b into out, like add(int[], int[], int[]),
+	 * advancing the positions of the three buffers.
+	 * 
+	 * @return the indexes, relative to the initial positions, whose result overflowed
+	 */
+	public static BitSet add(IntBuffer a, IntBuffer b, IntBuffer out) {
+		return applyInChunks(Calculator::add, a, b, out);
+	}
+
+	public static BitSet subtract(IntBuffer a, IntBuffer b, IntBuffer out) {
+		return applyInChunks(Calculator::subtract, a, b, out);
+	}
+
+	public static BitSet multiply(IntBuffer a, IntBuffer b, IntBuffer out) {
+		return applyInChunks(Calculator::multiply, a, b, out);
+	}
+
+	/**
+	 * Adds the remaining elements of a and b into out, like addWidening(int[], int[], long[]),
+	 * advancing the positions of the three buffers.
+	 */
+	public static void addWidening(IntBuffer a, IntBuffer b, LongBuffer out) {
+		applyInChunks(Calculator::addWidening, a, b, out);
+	}
+
+	public static void subtractWidening(IntBuffer a, IntBuffer b, LongBuffer out) {
+		applyInChunks(Calculator::subtractWidening, a, b, out);
+	}
+
+	public static void multiplyWidening(IntBuffer a, IntBuffer b, LongBuffer out) {
+		applyInChunks(Calculator::multiplyWidening, a, b, out);
+	}
+
+	/**
+	 * @return the sum of the elements of a, which cannot overflow
+	 */
+	public static long sum(int[] a) {
+		return stream(a).asLongStream().sum();
+	}
+
+	/**
+	 * @return the product of the elements of a
+	 * @throws ArithmeticException if the product overflows a long (it may also
+	 *         be thrown for a product of exactly Long.MIN_VALUE)
+	 */
+	public static long product(int[] a) {
+		// Without zeros no partial product is larger in magnitude than the
+		// whole, so an intermediate overflow means the product overflows
+		if (stream(a).anyMatch(x -> x == 0))
+			return 0;
+		return stream(a).asLongStream().reduce(1L, Math::multiplyExact);
+	}
+
+	private static IntStream stream(int[] a) {
+		IntStream s = Arrays.stream(a);
+		return a.length >= PARALLEL_THRESHOLD ? s.parallel() : s;
+	}
+
+	private static void checkLengths(int a, int b, int out) {
+		if (a != b || out < a)
+			throw new IllegalArgumentException("violates: a.length == b.length <= out.length");
+	}
+
+	private interface ArrayOperation {
+		BitSet apply(int[] a, int[] b, int[] out);
+	}
+
+	private interface WideningArrayOperation {
+		void apply(int[] a, int[] b, long[] out);
+	}
+
+	// Buffers are copied through arrays a chunk at a time, so the array loops do the work
+	private static BitSet applyInChunks(ArrayOperation operation, IntBuffer a, IntBuffer b, IntBuffer out) {
+		int n = a.remaining();
+		checkLengths(n, b.remaining(), out.remaining());
+		BitSet overflows = new BitSet(n);
+		int[] x = new int[Math.min(n, BUFFER_CHUNK)], y = new int[x.length], r = new int[x.length];
+		for (int from = 0; from < n; from += x.length) {
+			int length = Math.min(x.length, n - from);
+			a.get(x, 0, length);
+			b.get(y, 0, length);
+			BitSet chunk = operation.apply(x, y, r);
+			out.put(r, 0, length);
+			for (int i = chunk.nextSetBit(0); i >= 0 && i < length; i = chunk.nextSetBit(i + 1))
+				overflows.set(from + i);
+		}
+		return overflows;
+	}
+
+	private static void applyInChunks(WideningArrayOperation operation, IntBuffer a, IntBuffer b, LongBuffer out) {
+		int n = a.remaining();
+		checkLengths(n, b.remaining(), out.remaining());
+		int[] x = new int[Math.min(n, BUFFER_CHUNK)], y = new int[x.length];
+		long[] r = new long[x.length];
+		for (int from = 0; from < n; from += x.length) {
+			int length = Math.min(x.length, n - from);
+			a.get(x, 0, length);
+			b.get(y, 0, length);
+			operation.apply(x, y, r);
+			out.put(r, 0, length);
+		}
+	}
+
 }
@@ -1,9 +1,20 @@
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.StringWriter;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.CsvFileSource;
@@ -24,6 +35,187 @@ class CalculatorTest {
 				() -> assertEquals(27, Calculator.multiply(3, 9)));
 	}
 
+	@Test
+	public void testCalculatorShouldReportOverflowLanes() {
+		int[] a = { 1, Integer.MAX_VALUE, -3, Integer.MIN_VALUE, 70000 };
+		int[] b = { 2, 1, 4, -1, 70000 };
+		int[] out = new int[a.length];
+
+		BitSet overflows = Calculator.add(a, b, out);
+		assertArrayEquals(new int[] { 3, Integer.MIN_VALUE, 1, Integer.MAX_VALUE, 140000 }, out);
+		assertEquals(BitSet.valueOf(new long[] { 0b01010 }), overflows);
+
+		overflows = Calculator.subtract(a, b, out);
+		assertArrayEquals(new int[] { -1, Integer.MAX_VALUE - 1, -7, Integer.MIN_VALUE + 1, 0 }, out);
+		assertTrue(overflows.isEmpty());
+
+		overflows = Calculator.multiply(a, b, out);
+		assertEquals(70000 * 70000, out[4]);
+		assertEquals(BitSet.valueOf(new long[] { 0b11000 }), overflows);
+
+		long[] wide = new long[a.length];
+		Calculator.multiplyWidening(a, b, wide);
+		assertArrayEquals(new long[] { 2, Integer.MAX_VALUE, -12, 2147483648L, 4900000000L }, wide);
+		assertThrows(IllegalArgumentException.class, () -> Calculator.add(a, new int[1], out));
+	}
+
+	@Test
+	public void testCalculatorShouldProcessBuffers() {
+		// More elements than a single chunk, with overflows on both sides of the chunk boundary
+		int n = 10000;
+		IntBuffer a = IntBuffer.allocate(n), b = IntBuffer.allocate(n), out = IntBuffer.allocate(n);
+		for (int i = 0; i < n; i++) {
+			a.put(i % 4096 == 0 ? Integer.MAX_VALUE : i);
+			b.put(1);
+		}
+		a.flip();
+		b.flip();
+		BitSet overflows = Calculator.add(a, b, out);
+		assertEquals(3, overflows.cardinality());
+		assertTrue(overflows.get(0) && overflows.get(4096) && overflows.get(8192));
+		assertEquals(6, out.get(5));
+		assertEquals(0, a.remaining());
+
+		a.rewind();
+		b.rewind();
+		LongBuffer wide = LongBuffer.allocate(n);
+		Calculator.addWidening(a, b, wide);
+		assertEquals(Integer.MAX_VALUE + 1L, wide.get(4096));
+	}
+
+	@Test
+	public void testCalculatorShouldReduceArrays() {
+		int[] large = IntStream.range(0, 1 << 20).map(i -> Integer.MAX_VALUE).toArray();
+		assertEquals((long) Integer.MAX_VALUE << 20, Calculator.sum(large));
+		assertEquals(-120, Calculator.product(new int[] { 1, -2, 3, 4, 5 }));
+		assertEquals(0, Calculator.sum(new int[0]));
+		assertThrows(ArithmeticException.class, () -> Calculator.product(large));
+		assertEquals(0, Calculator.product(new int[] { Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, 0 }));
+		large[large.length - 1] = 0;
+		assertEquals(0, Calculator.product(large));
+	}
+
+	@Test
+	public void testCsvBatchEvaluatorShouldCheckTestData() throws Exception {
+		Path csv = Paths.get(getClass().getResource("/test-data.csv").toURI());
+		CsvBatchEvaluator.Report report = new CsvBatchEvaluator(CsvBatchEvaluator.Operation.ADD).evaluate(csv);
+		assertEquals(3, report.getRows());
+		assertEquals(0, report.getMismatches());
+		assertEquals(3, new CsvBatchEvaluator(CsvBatchEvaluator.Operation.MULTIPLY).evaluate(csv).getMismatches());
+	}
+
+	@Test
+	public void testCsvBatchEvaluatorShouldReportMismatches(@TempDir Path dir) throws Exception {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 1000; i++)
+			sb.append(i).append(", ").append(-2 * i).append(",").append(i % 100 == 0 ? 1 : -i).append("\r\n");
+		sb.append("\n2147483647,1,-2147483648");
+		Path csv = dir.resolve("data.csv");
+		Files.write(csv, sb.toString().getBytes(StandardCharsets.US_ASCII));
+
+		// Small batches and many chunks, so rows straddle batch and chunk boundaries
+		for (int parallelism : new int[] { 1, 7 }) {
+			StringWriter mismatches = new StringWriter();
+			CsvBatchEvaluator.Report report = new CsvBatchEvaluator(CsvBatchEvaluator.Operation.ADD, 64, parallelism)
+					.evaluate(csv, mismatches);
+			assertEquals(1001, report.getRows());
+			assertEquals(10, report.getMismatches());
+			assertEquals(1, report.getOverflows());
+			String[] lines = mismatches.toString().split("\n");
+			assertEquals("1,0,0,1,0", lines[0]);
+			assertEquals("101,100,-200,1,-100", lines[1]);
+		}
+
+		StringWriter results = new StringWriter();
+		new CsvBatchEvaluator(CsvBatchEvaluator.Operation.ADD).evaluate(csv, null, results);
+		assertEquals("0,0,0\n1,-2,-1\n", results.toString().substring(0, 14));
+		assertTrue(results.toString().endsWith("\n2147483647,1,-2147483648\n"));
+
+		Files.write(csv, "1,2,3\n4,x,9\n".getBytes(StandardCharsets.US_ASCII));
+		assertThrows(IllegalArgumentException.class,
+				() -> new CsvBatchEvaluator(CsvBatchEvaluator.Operation.ADD).evaluate(csv));
+	}
+
+	@Test
+	public void testCsvBatchEvaluatorShouldSpillRecords(@TempDir Path dir) throws Exception {
+		// Every row mismatches, and each parallel chunk has more records than
+		// it keeps in memory
+		StringBuilder sb = new StringBuilder();
+		int rows = 3 * CsvBatchEvaluator.RECORD_BUFFER_SIZE + 5;
+		for (int i = 0; i < rows; i++)
+			sb.append(i).append(',').append(i).append(",-1\n");
+		Path csv = dir.resolve("data.csv");
+		Files.write(csv, sb.toString().getBytes(StandardCharsets.US_ASCII));
+
+		StringWriter sequentialMismatches = new StringWriter(), sequentialResults = new StringWriter();
+		CsvBatchEvaluator.Report sequential = new CsvBatchEvaluator(CsvBatchEvaluator.Operation.ADD)
+				.evaluate(csv, sequentialMismatches, sequentialResults);
+		StringWriter parallelMismatches = new StringWriter(), parallelResults = new StringWriter();
+		CsvBatchEvaluator.Report parallel = new CsvBatchEvaluator(CsvBatchEvaluator.Operation.ADD, 1000, 2)
+				.evaluate(csv, parallelMismatches, parallelResults);
+		assertEquals(rows, sequential.getMismatches());
+		assertEquals(rows, parallel.getMismatches());
+		assertEquals(sequentialMismatches.toString(), parallelMismatches.toString());
+		assertEquals(sequentialResults.toString(), parallelResults.toString());
+		String[] lines = parallelMismatches.toString().split("\n");
+		assertEquals(rows, lines.length);
+		assertEquals(rows + "," + (rows - 1) + "," + (rows - 1) + ",-1," + 2 * (rows - 1), lines[rows - 1]);
+		assertEquals(rows, new CsvBatchEvaluator(CsvBatchEvaluator.Operation.ADD, 1000, 2).evaluate(csv)
+				.getMismatches());
+	}
+
+	@Test
+	public void testExpressionShouldEvaluateRows() {
+		Expression e = Expression.compile("add(x, multiply(y, 3)) - 2 * -z");
+		assertEquals(Arrays.asList("x", "y", "z"), e.getVariables());
+		int[] frame = e.newFrame();
+		for (int row = 0; row < 100; row++) {
+			frame[e.getSlot("x")] = row;
+			frame[e.getSlot("y")] = row - 50;
+			frame[e.getSlot("z")] = 7;
+			assertEquals(row + 3 * (row - 50) + 14, e.evaluate(frame));
+		}
+
+		long[] longFrame = e.newLongFrame();
+		longFrame[e.getSlot("x")] = Integer.MAX_VALUE;
+		assertEquals((long) Integer.MAX_VALUE, e.evaluate(longFrame));
+		frame = e.newFrame();
+		frame[e.getSlot("x")] = Integer.MAX_VALUE;
+		frame[e.getSlot("z")] = 1;
+		assertEquals(Integer.MIN_VALUE + 1, e.evaluate(frame));
+	}
+
+	@Test
+	public void testExpressionShouldFoldAndReuse() {
+		// Constant subexpressions are folded away
+		Expression constant = Expression.compile("multiply(2, add(3, 4)) - (1)");
+		assertEquals(0, constant.getOperationCount());
+		assertEquals(13, constant.evaluate(constant.newFrame()));
+
+		// x * y, y * x and multiply(x, y) are computed once
+		Expression e = Expression.compile("x * y + multiply(y, x) - y * x");
+		assertEquals(3, e.getOperationCount());
+		int[] frame = e.newFrame();
+		frame[e.getSlot("x")] = 6;
+		frame[e.getSlot("y")] = 7;
+		assertEquals(42, e.evaluate(frame));
+
+		assertSame(e, Expression.compile("x * y + multiply(y, x) - y * x"));
+		// Folded constants overflow like the variables do, in each frame type
+		Expression folded = Expression.compile("x + 2147483647 * 2");
+		Expression unfolded = Expression.compile("x + y * 2");
+		long[] longFrame = unfolded.newLongFrame();
+		longFrame[unfolded.getSlot("y")] = Integer.MAX_VALUE;
+		assertEquals(4294967294L, unfolded.evaluate(longFrame));
+		assertEquals(4294967294L, folded.evaluate(folded.newLongFrame()));
+		assertEquals(-2, folded.evaluate(folded.newFrame()));
+
+		assertThrows(IllegalArgumentException.class, () -> Expression.compile("add(x)"));
+		assertThrows(IllegalArgumentException.class, () -> Expression.compile("divide(x, 2)"));
+		assertThrows(IllegalArgumentException.class, () -> Expression.compile("x + 99999999999"));
+		assertThrows(IllegalArgumentException.class, () -> e.getSlot("z"));
+	}
+
 	@DisplayName("Should calculate the correct sum")
 	@ParameterizedTest(name = "{index} => x={0}, y={1}, expected={2}")
 	@CsvFileSource(resources = "/test-data.csv")
@@ -0,0 +1,442 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Checks a Calculator operation against a CSV file of x,y,expected lines (the
+ * format of test-data.csv). The file is memory-mapped and integers are parsed
+ * straight from its bytes; rows are then evaluated in batches with the array
+ * operations of Calculator. Large files can be split at line boundaries into
+ * chunks that are evaluated in parallel. Memory use does not depend on the
+ * size of the file: chunks evaluated in parallel keep at most
+ * RECORD_BUFFER_SIZE output records in memory, and spill the rest to a
+ * temporary file until they can be written in file order.
+ */
+public class CsvBatchEvaluator {
+
+	public static final int DEFAULT_BATCH_SIZE = 1 << 12;
+
+	/**
+	 * Maximum number of output records a chunk evaluated in parallel keeps in
+	 * memory before spilling them to a temporary file.
+	 */
+	public static final int RECORD_BUFFER_SIZE = 1 << 14;
+
+	// A single mapping cannot exceed Integer.MAX_VALUE bytes
+	private static final long MAX_CHUNK_SIZE = 1 << 30;
+
+	public enum Operation {
+		ADD {
+			BitSet apply(int[] x, int[] y, int[] out) {
+				return Calculator.add(x, y, out);
+			}
+		},
+		SUBTRACT {
+			BitSet apply(int[] x, int[] y, int[] out) {
+				return Calculator.subtract(x, y, out);
+			}
+		},
+		MULTIPLY {
+			BitSet apply(int[] x, int[] y, int[] out) {
+				return Calculator.multiply(x, y, out);
+			}
+		};
+
+		abstract BitSet apply(int[] x, int[] y, int[] out);
+	}
+
+	/**
+	 * Totals of an evaluation.
+	 */
+	public static final class Report {
+
+		private long rows;
+		private long mismatches;
+		private long overflows;
+
+		public long getRows() {
+			return rows;
+		}
+
+		/**
+		 * @return the number of rows whose result differs from the expected value
+		 */
+		public long getMismatches() {
+			return mismatches;
+		}
+
+		/**
+		 * @return the number of rows whose result overflowed (and wrapped around)
+		 */
+		public long getOverflows() {
+			return overflows;
+		}
+
+		@Override
+		public String toString() {
+			return rows + " rows, " + mismatches + " mismatches, " + overflows + " overflows";
+		}
+	}
+
+	private final Operation operation;
+	private final int batchSize;
+	private final int parallelism;
+
+	public CsvBatchEvaluator(Operation operation) {
+		this(operation, DEFAULT_BATCH_SIZE, 1);
+	}
+
+	/**
+	 * @param batchSize number of rows evaluated at a time
+	 * @param parallelism number of chunks the file is split into, and of threads
+	 *        evaluating them
+	 */
+	public CsvBatchEvaluator(Operation operation, int batchSize, int parallelism) {
+		if (batchSize <= 0 || parallelism <= 0)
+			throw new IllegalArgumentException("violates: batchSize > 0 and parallelism > 0");
+		this.operation = operation;
+		this.batchSize = batchSize;
+		this.parallelism = parallelism;
+	}
+
+	public Report evaluate(Path csv) throws IOException {
+		return evaluate(csv, null, null);
+	}
+
+	public Report evaluate(Path csv, Writer mismatches) throws IOException {
+		return evaluate(csv, mismatches, null);
+	}
+
+	/**
+	 * Evaluates every row of a CSV file. Blank lines are skipped, as are spaces,
+	 * tabs and carriage returns.
+	 * 
+	 * @param mismatches if not null, receives a line,x,y,expected,actual line for
+	 *        every row whose result differs from the expected value, in file order
+	 * @param results if not null, receives an x,y,actual line for every row, in
+	 *        file order (a CSV file of the same format with the actual results)
+	 * @throws IllegalArgumentException if a line is not made of three integers
+	 */
+	public Report evaluate(Path csv, Writer mismatches, Writer results) throws IOException {
+		try (FileChannel channel = FileChannel.open(csv, StandardOpenOption.READ)) {
+			long[] bounds = split(channel);
+			List<Chunk> chunks = new ArrayList<>();
+			for (int i = 0; i + 1 < bounds.length; i++)
+				chunks.add(new Chunk(channel, bounds[i], bounds[i + 1], mismatches, results));
+			try {
+				return evaluate(chunks, mismatches, results);
+			} finally {
+				for (Chunk chunk : chunks)
+					chunk.deleteSpill();
+			}
+		}
+	}
+
+	private Report evaluate(List<Chunk> chunks, Writer mismatches, Writer results) throws IOException {
+		Report report = new Report();
+		if (parallelism == 1 || chunks.size() == 1) {
+			// In file order, so the records are written as the rows are evaluated
+			long lineOffset = 0;
+			for (Chunk chunk : chunks) {
+				chunk.lineOffset = lineOffset;
+				chunk.call();
+				lineOffset += chunk.lines;
+			}
+		} else {
+			for (Chunk chunk : chunks)
+				chunk.deferred = true;
+			ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, chunks.size()));
+			try {
+				for (Future<Chunk> future : executor.invokeAll(chunks))
+					future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException(e);
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof IOException)
+					throw (IOException) e.getCause();
+				if (e.getCause() instanceof RuntimeException)
+					throw (RuntimeException) e.getCause();
+				throw new IOException(e.getCause());
+			} finally {
+				executor.shutdown();
+			}
+
+			// Write the deferred records in file order, numbering lines from the
+			// start of the file
+			long lineOffset = 0;
+			for (Chunk chunk : chunks) {
+				chunk.lineOffset = lineOffset;
+				chunk.writeDeferred();
+				lineOffset += chunk.lines;
+			}
+		}
+
+		for (Chunk chunk : chunks) {
+			report.rows += chunk.rows;
+			report.overflows += chunk.overflows;
+			report.mismatches += chunk.mismatches;
+		}
+		if (mismatches != null)
+			mismatches.flush();
+		if (results != null)
+			results.flush();
+		return report;
+	}
+
+	/**
+	 * @return the chunk boundaries: 0, the start of a line near each multiple of
+	 *         the chunk size, and the file size
+	 */
+	private long[] split(FileChannel channel) throws IOException {
+		long size = channel.size();
+		long chunkSize = Math.min(MAX_CHUNK_SIZE, Math.max(1, (size + parallelism - 1) / parallelism));
+		List<Long> bounds = new ArrayList<>();
+		bounds.add(0L);
+		long position = chunkSize;
+		while (position < size) {
+			position = nextLine(channel, position);
+			if (position >= size)
+				break;
+			bounds.add(position);
+			position += chunkSize;
+		}
+		bounds.add(size);
+		return bounds.stream().mapToLong(Long::longValue).toArray();
+	}
+
+	/**
+	 * @return the position after the first newline at or after position, or the
+	 *         file size if there is none
+	 */
+	private static long nextLine(FileChannel channel, long position) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(256);
+		while (true) {
+			buffer.clear();
+			int read = channel.read(buffer, position);
+			if (read <= 0)
+				return channel.size();
+			for (int i = 0; i < read; i++)
+				if (buffer.get(i) == '\n')
+					return position + i + 1;
+			position += read;
+		}
+	}
+
+	/**
+	 * Evaluation of the lines between two positions of the file, starting at a
+	 * line boundary. Lines are numbered from the start of the chunk, plus
+	 * lineOffset when the records are written.
+	 * 
+	 * <p>
+	 * A chunk evaluated in file order writes its records as it goes. A deferred
+	 * chunk (evaluated in parallel with earlier ones) buffers them, spilling
+	 * full buffers to a temporary file, until writeDeferred.
+	 */
+	private final class Chunk implements Callable<Chunk> {
+
+		private final FileChannel channel;
+		private final long start;
+		private final long end;
+		private final Writer mismatchWriter;
+		private final Writer resultWriter;
+		private long lines;
+		private long rows;
+		private long overflows;
+		private long mismatches;
+		private long lineOffset;
+		private boolean deferred;
+
+		// records buffered by a deferred chunk: line, and x, y, expected, actual
+		private long[] recordLines;
+		private int[] records;
+		private int recordCount;
+		private Path spill;
+		private DataOutputStream spillOut;
+		private long spilled;
+
+		// current batch
+		private final int[] x = new int[batchSize];
+		private final int[] y = new int[batchSize];
+		private final int[] expected = new int[batchSize];
+		private final int[] actual = new int[batchSize];
+		private final long[] rowLines = new long[batchSize];
+		private int size;
+		private final StringBuilder line = new StringBuilder();
+
+		Chunk(FileChannel channel, long start, long end, Writer mismatchWriter, Writer resultWriter) {
+			this.channel = channel;
+			this.start = start;
+			this.end = end;
+			this.mismatchWriter = mismatchWriter;
+			this.resultWriter = resultWriter;
+		}
+
+		@Override
+		public Chunk call() throws IOException {
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+			int limit = buffer.limit();
+			int position = 0;
+			int[] fields = new int[3];
+
+			while (position < limit) {
+				lines++;
+				int count = 0;
+				boolean expectValue = true; // at the start of the line or after a comma
+				while (position < limit) {
+					byte c = buffer.get(position);
+					if (c == '\n') {
+						position++;
+						break;
+					}
+					if (c == ' ' || c == '\t' || c == '\r') {
+						position++;
+					} else if (c == ',') {
+						if (expectValue)
+							throw malformed(position);
+						expectValue = true;
+						position++;
+					} else {
+						if (!expectValue || count == fields.length)
+							throw malformed(position);
+						// Parse an integer, as a negative number so Integer.MIN_VALUE fits
+						boolean negative = c == '-';
+						if (c == '-' || c == '+')
+							position++;
+						int digitsStart = position;
+						long value = 0;
+						while (position < limit && (c = buffer.get(position)) >= '0' && c <= '9') {
+							value = value * 10 - (c - '0');
+							if (value < Integer.MIN_VALUE)
+								throw malformed(digitsStart);
+							position++;
+						}
+						if (position == digitsStart || (!negative && value == Integer.MIN_VALUE))
+							throw malformed(digitsStart);
+						fields[count++] = (int) (negative ? value : -value);
+						expectValue = false;
+					}
+				}
+				if (count == 0 && expectValue)
+					continue; // blank line
+				if (count != fields.length || expectValue)
+					throw malformed(position - 1);
+
+				x[size] = fields[0];
+				y[size] = fields[1];
+				expected[size] = fields[2];
+				rowLines[size] = lines;
+				if (++size == batchSize)
+					flush();
+			}
+			flush();
+			if (spillOut != null)
+				spillOut.close();
+			return this;
+		}
+
+		private void flush() throws IOException {
+			if (size == 0)
+				return;
+			// A final partial batch is evaluated in full; the rows past size are ignored
+			BitSet overflowed = operation.apply(x, y, actual);
+			for (int i = overflowed.nextSetBit(0); i >= 0 && i < size; i = overflowed.nextSetBit(i + 1))
+				overflows++;
+			for (int i = 0; i < size; i++) {
+				boolean mismatch = actual[i] != expected[i];
+				if (mismatch)
+					mismatches++;
+				if (resultWriter != null || (mismatch && mismatchWriter != null)) {
+					if (deferred)
+						buffer(rowLines[i], x[i], y[i], expected[i], actual[i]);
+					else
+						write(rowLines[i], x[i], y[i], expected[i], actual[i]);
+				}
+			}
+			rows += size;
+			size = 0;
+		}
+
+		private void write(long row, int x, int y, int expected, int actual) throws IOException {
+			if (resultWriter != null) {
+				line.setLength(0);
+				line.append(x).append(',').append(y).append(',').append(actual).append('\n');
+				resultWriter.append(line);
+			}
+			if (mismatchWriter != null && actual != expected) {
+				line.setLength(0);
+				line.append(lineOffset + row).append(',').append(x).append(',').append(y).append(',')
+						.append(expected).append(',').append(actual).append('\n');
+				mismatchWriter.append(line);
+			}
+		}
+
+		private void buffer(long row, int x, int y, int expected, int actual) throws IOException {
+			if (records == null) {
+				recordLines = new long[RECORD_BUFFER_SIZE];
+				records = new int[4 * RECORD_BUFFER_SIZE];
+			}
+			if (recordCount == RECORD_BUFFER_SIZE) {
+				if (spillOut == null) {
+					spill = Files.createTempFile("csv-batch", ".bin");
+					spillOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(spill)));
+				}
+				for (int r = 0; r < recordCount; r++) {
+					spillOut.writeLong(recordLines[r]);
+					for (int k = 4 * r; k < 4 * r + 4; k++)
+						spillOut.writeInt(records[k]);
+				}
+				spilled += recordCount;
+				recordCount = 0;
+			}
+			recordLines[recordCount] = row;
+			records[4 * recordCount] = x;
+			records[4 * recordCount + 1] = y;
+			records[4 * recordCount + 2] = expected;
+			records[4 * recordCount + 3] = actual;
+			recordCount++;
+		}
+
+		/**
+		 * Writes the records of a deferred chunk: the spilled ones, then the
+		 * buffered ones.
+		 */
+		void writeDeferred() throws IOException {
+			if (spill != null)
+				try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(spill)))) {
+					for (long r = 0; r < spilled; r++)
+						write(in.readLong(), in.readInt(), in.readInt(), in.readInt(), in.readInt());
+				}
+			for (int r = 0; r < recordCount; r++)
+				write(recordLines[r], records[4 * r], records[4 * r + 1], records[4 * r + 2], records[4 * r + 3]);
+		}
+
+		void deleteSpill() throws IOException {
+			if (spillOut != null)
+				spillOut.close();
+			if (spill != null)
+				Files.deleteIfExists(spill);
+		}
+
+		private IllegalArgumentException malformed(int position) {
+			return new IllegalArgumentException("malformed CSV line at byte " + (start + position));
+		}
+	}
+
+}
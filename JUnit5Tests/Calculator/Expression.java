@@ -0,0 +1,391 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Arithmetic formula compiled into a flat list of Calculator operations over an
+ * array of slots. A formula combines integer constants and variables with the
+ * add, subtract and multiply functions, the +, - and * operators and
+ * parentheses, e.g. "add(x, multiply(y, 3)) - 2 * z".
+ * 
+ * <p>
+ * Compilation folds constant subexpressions and computes repeated
+ * subexpressions only once. Evaluation takes a frame, created by newFrame,
+ * whose variable slots (see getSlot) the caller fills for each row; the
+ * instructions store their results in the same frame, so evaluating a row
+ * allocates nothing. A frame must not be shared between threads.
+ */
+public final class Expression {
+
+	/**
+	 * Maximum number of compiled expressions kept by compile.
+	 */
+	public static final int CACHE_SIZE = 1024;
+
+	private static final Map<String, Expression> CACHE = Collections
+			.synchronizedMap(new LinkedHashMap<String, Expression>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, Expression> eldest) {
+					return size() > CACHE_SIZE;
+				}
+			});
+
+	private static final byte ADD = 0, SUBTRACT = 1, MULTIPLY = 2;
+
+	private final String source;
+	private final List<String> variables;
+	private final long[] constants;
+	private final byte[] operations;
+	private final int[] left;
+	private final int[] right;
+	private final int[] target;
+	private final int result;
+
+	private Expression(String source, List<String> variables, long[] constants, byte[] operations, int[] left,
+			int[] right, int[] target, int result) {
+		this.source = source;
+		this.variables = variables;
+		this.constants = constants;
+		this.operations = operations;
+		this.left = left;
+		this.right = right;
+		this.target = target;
+		this.result = result;
+	}
+
+	/**
+	 * Compiles a formula, or returns the expression compiled earlier from the
+	 * same source text.
+	 * 
+	 * @throws IllegalArgumentException if the formula is malformed
+	 */
+	public static Expression compile(String source) {
+		Expression expression = CACHE.get(source);
+		if (expression == null) {
+			expression = new Compiler(source).compile();
+			CACHE.put(source, expression);
+		}
+		return expression;
+	}
+
+	public String getSource() {
+		return source;
+	}
+
+	/**
+	 * @return the variable names, in slot order
+	 */
+	public List<String> getVariables() {
+		return variables;
+	}
+
+	/**
+	 * @return the frame slot of a variable
+	 * @throws IllegalArgumentException if the formula has no such variable
+	 */
+	public int getSlot(String variable) {
+		int slot = variables.indexOf(variable);
+		if (slot < 0)
+			throw new IllegalArgumentException("unknown variable " + variable);
+		return slot;
+	}
+
+	/**
+	 * @return the number of operations performed per evaluation
+	 */
+	public int getOperationCount() {
+		return operations.length;
+	}
+
+	/**
+	 * @return a frame for evaluate(int[]), with the variables set to 0
+	 */
+	public int[] newFrame() {
+		int[] frame = new int[variables.size() + constants.length + operations.length];
+		for (int i = 0; i < constants.length; i++)
+			frame[variables.size() + i] = (int) constants[i];
+		return frame;
+	}
+
+	/**
+	 * @return a frame for evaluate(long[]), with the variables set to 0
+	 */
+	public long[] newLongFrame() {
+		long[] frame = new long[variables.size() + constants.length + operations.length];
+		System.arraycopy(constants, 0, frame, variables.size(), constants.length);
+		return frame;
+	}
+
+	/**
+	 * Evaluates the formula with int arithmetic, which wraps around on overflow
+	 * like Calculator.
+	 */
+	public int evaluate(int[] frame) {
+		for (int i = 0; i < operations.length; i++) {
+			int a = frame[left[i]], b = frame[right[i]];
+			switch (operations[i]) {
+			case ADD:
+				frame[target[i]] = Calculator.add(a, b);
+				break;
+			case SUBTRACT:
+				frame[target[i]] = Calculator.subtract(a, b);
+				break;
+			default:
+				frame[target[i]] = Calculator.multiply(a, b);
+			}
+		}
+		return frame[result];
+	}
+
+	/**
+	 * Evaluates the formula with long arithmetic.
+	 */
+	public long evaluate(long[] frame) {
+		for (int i = 0; i < operations.length; i++) {
+			long a = frame[left[i]], b = frame[right[i]];
+			switch (operations[i]) {
+			case ADD:
+				frame[target[i]] = a + b;
+				break;
+			case SUBTRACT:
+				frame[target[i]] = a - b;
+				break;
+			default:
+				frame[target[i]] = a * b;
+			}
+		}
+		return frame[result];
+	}
+
+	@Override
+	public String toString() {
+		return source;
+	}
+
+	/**
+	 * Recursive descent parser that emits the operations while parsing:
+	 * 
+	 * <pre>
+	 * expression := term (('+' | '-') term)*
+	 * term       := unary ('*' unary)*
+	 * unary      := '-' unary | primary
+	 * primary    := integer | name | name '(' expression ',' expression ')' | '(' expression ')'
+	 * </pre>
+	 * 
+	 * Operands are references to a variable, a constant or the result of an
+	 * earlier operation; they are turned into frame slots once all variables
+	 * and constants are known.
+	 */
+	private static final class Compiler {
+
+		private static final int VARIABLE = 0, CONSTANT = 1, TEMPORARY = 2;
+
+		private final String source;
+		private int position;
+
+		private final List<String> variables = new ArrayList<>();
+		private final List<Long> constants = new ArrayList<>();
+		private final Map<Long, Integer> constantIndexes = new HashMap<>();
+		private final List<long[]> operations = new ArrayList<>(); // {operation, left, right}
+		private final Map<List<Long>, Integer> operationIndexes = new HashMap<>();
+
+		Compiler(String source) {
+			this.source = source;
+		}
+
+		Expression compile() {
+			long root = expression();
+			skipSpaces();
+			if (position < source.length())
+				throw unexpected();
+
+			int v = variables.size(), c = constants.size();
+			long[] constantValues = constants.stream().mapToLong(Long::longValue).toArray();
+			byte[] ops = new byte[operations.size()];
+			int[] left = new int[ops.length], right = new int[ops.length], target = new int[ops.length];
+			for (int i = 0; i < ops.length; i++) {
+				long[] op = operations.get(i);
+				ops[i] = (byte) op[0];
+				left[i] = slot(op[1], v, c);
+				right[i] = slot(op[2], v, c);
+				target[i] = v + c + i;
+			}
+			return new Expression(source, Collections.unmodifiableList(new ArrayList<>(variables)), constantValues,
+					ops, left, right, target, slot(root, v, c));
+		}
+
+		private static int slot(long operand, int variables, int constants) {
+			int index = (int) operand;
+			switch ((int) (operand >>> 32)) {
+			case VARIABLE:
+				return index;
+			case CONSTANT:
+				return variables + index;
+			default:
+				return variables + constants + index;
+			}
+		}
+
+		private static long operand(int kind, int index) {
+			return (long) kind << 32 | index;
+		}
+
+		private long constant(long value) {
+			Integer index = constantIndexes.get(value);
+			if (index == null) {
+				index = constants.size();
+				constants.add(value);
+				constantIndexes.put(value, index);
+			}
+			return operand(CONSTANT, index);
+		}
+
+		private long variable(String name) {
+			int index = variables.indexOf(name);
+			if (index < 0) {
+				index = variables.size();
+				variables.add(name);
+			}
+			return operand(VARIABLE, index);
+		}
+
+		private boolean isConstant(long operand) {
+			return operand >>> 32 == CONSTANT;
+		}
+
+		private long constantValue(long operand) {
+			return constants.get((int) operand);
+		}
+
+		private long emit(int operation, long a, long b) {
+			// Constant folding, in long arithmetic so that the folded constants are
+			// exact for evaluate(long[]); their low 32 bits are the int arithmetic
+			// result, so newFrame truncates them
+			if (isConstant(a) && isConstant(b)) {
+				long x = constantValue(a), y = constantValue(b);
+				return constant(operation == ADD ? x + y : operation == SUBTRACT ? x - y : x * y);
+			}
+			// Common subexpressions, with the operands of add and multiply in a
+			// canonical order so that x + y and y + x are the same
+			if (operation != SUBTRACT && a > b) {
+				long t = a;
+				a = b;
+				b = t;
+			}
+			List<Long> key = List.of((long) operation, a, b);
+			Integer index = operationIndexes.get(key);
+			if (index == null) {
+				index = operations.size();
+				operations.add(new long[] { operation, a, b });
+				operationIndexes.put(key, index);
+			}
+			return operand(TEMPORARY, index);
+		}
+
+		private long expression() {
+			long value = term();
+			while (true) {
+				if (accept('+'))
+					value = emit(ADD, value, term());
+				else if (accept('-'))
+					value = emit(SUBTRACT, value, term());
+				else
+					return value;
+			}
+		}
+
+		private long term() {
+			long value = unary();
+			while (accept('*'))
+				value = emit(MULTIPLY, value, unary());
+			return value;
+		}
+
+		private long unary() {
+			if (accept('-'))
+				return emit(SUBTRACT, constant(0), unary());
+			return primary();
+		}
+
+		private long primary() {
+			skipSpaces();
+			if (accept('(')) {
+				long value = expression();
+				expect(')');
+				return value;
+			}
+			if (position < source.length() && Character.isDigit(source.charAt(position))) {
+				int start = position;
+				while (position < source.length() && Character.isDigit(source.charAt(position)))
+					position++;
+				try {
+					return constant(Integer.parseInt(source.substring(start, position)));
+				} catch (NumberFormatException e) {
+					position = start;
+					throw unexpected();
+				}
+			}
+			if (position < source.length() && Character.isJavaIdentifierStart(source.charAt(position))) {
+				int start = position;
+				while (position < source.length() && Character.isJavaIdentifierPart(source.charAt(position)))
+					position++;
+				String name = source.substring(start, position);
+				if (!accept('('))
+					return variable(name);
+
+				int operation;
+				switch (name) {
+				case "add":
+					operation = ADD;
+					break;
+				case "subtract":
+					operation = SUBTRACT;
+					break;
+				case "multiply":
+					operation = MULTIPLY;
+					break;
+				default:
+					position = start;
+					throw new IllegalArgumentException("unknown function " + name + " at position " + start);
+				}
+				long a = expression();
+				expect(',');
+				long b = expression();
+				expect(')');
+				return emit(operation, a, b);
+			}
+			throw unexpected();
+		}
+
+		private void skipSpaces() {
+			while (position < source.length() && Character.isWhitespace(source.charAt(position)))
+				position++;
+		}
+
+		private boolean accept(char c) {
+			skipSpaces();
+			if (position < source.length() && source.charAt(position) == c) {
+				position++;
+				return true;
+			}
+			return false;
+		}
+
+		private void expect(char c) {
+			if (!accept(c))
+				throw unexpected();
+		}
+
+		private IllegalArgumentException unexpected() {
+			if (position >= source.length())
+				return new IllegalArgumentException("unexpected end of " + source);
+			return new IllegalArgumentException("unexpected '" + source.charAt(position) + "' at position " + position);
+		}
+	}
+
+}
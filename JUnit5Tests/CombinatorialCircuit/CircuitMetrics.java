@@ -0,0 +1,236 @@
+package circuits;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and histograms of the work done by circuit evaluation, plus
+ * circuits.GateEvaluation and circuits.CycleCheck Flight Recorder events.
+ * Disabled by default; while disabled, LogicVariable and LogicGate only pay for
+ * reading a flag.
+ */
+public final class CircuitMetrics {
+
+	private static volatile boolean enabled;
+
+	private static final LongAdder gateEvaluations = new LongAdder();
+	private static final LongAdder valueQueries = new LongAdder();
+	private static final LongAdder dependsOnCalls = new LongAdder();
+	private static final LongAdder cycleChecks = new LongAdder();
+	private static final Histogram gateEvaluationsPerQuery = new Histogram();
+	private static final Histogram cycleCheckDepth = new Histogram();
+
+	// Per thread state of the evaluation or cycle check in progress
+	private static final ThreadLocal<Probe> probes = ThreadLocal.withInitial(Probe::new);
+
+	private static final class Probe {
+		private int evaluationDepth;
+		private int maxEvaluationDepth;
+		private long evaluations;
+		private GateEvaluationEvent evaluationEvent;
+
+		private int dependsOnDepth;
+		private int maxDependsOnDepth;
+		private long dependsOnCalls;
+	}
+
+	private CircuitMetrics() {
+	}
+
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	public static void setEnabled(boolean enabled) {
+		CircuitMetrics.enabled = enabled;
+	}
+
+	/**
+	 * Sets all counters and histograms back to 0.
+	 */
+	public static void reset() {
+		gateEvaluations.reset();
+		valueQueries.reset();
+		dependsOnCalls.reset();
+		cycleChecks.reset();
+		gateEvaluationsPerQuery.reset();
+		cycleCheckDepth.reset();
+	}
+
+	/**
+	 * @return the total number of gates evaluated
+	 */
+	public static long getGateEvaluations() {
+		return gateEvaluations.sum();
+	}
+
+	/**
+	 * @return the number of outermost getValue calls on calculated variables
+	 */
+	public static long getValueQueries() {
+		return valueQueries.sum();
+	}
+
+	/**
+	 * @return the total number of LogicGate.dependsOn calls
+	 */
+	public static long getDependsOnCalls() {
+		return dependsOnCalls.sum();
+	}
+
+	/**
+	 * @return the number of LogicGate constructions (each checks for cycles)
+	 */
+	public static long getCycleChecks() {
+		return cycleChecks.sum();
+	}
+
+	/**
+	 * @return the histogram of the number of gates evaluated per value query
+	 */
+	public static Histogram getGateEvaluationsPerQuery() {
+		return gateEvaluationsPerQuery;
+	}
+
+	/**
+	 * @return the histogram of the dependsOn recursion depth per cycle check
+	 */
+	public static Histogram getCycleCheckDepth() {
+		return cycleCheckDepth;
+	}
+
+	/**
+	 * Evaluates the gate that calculates a variable, counting it and, for the
+	 * outermost call, recording the query.
+	 */
+	static boolean evaluate(LogicVariable variable) {
+		Probe probe = probes.get();
+		boolean outermost = probe.evaluationDepth == 0;
+		if (outermost) {
+			probe.evaluations = 0;
+			probe.maxEvaluationDepth = 0;
+			probe.evaluationEvent = new GateEvaluationEvent();
+			probe.evaluationEvent.begin();
+		}
+		probe.evaluations++;
+		probe.maxEvaluationDepth = Math.max(probe.maxEvaluationDepth, ++probe.evaluationDepth);
+		try {
+			return variable.getCalculatedBy().getValue();
+		} finally {
+			probe.evaluationDepth--;
+			if (outermost) {
+				gateEvaluations.add(probe.evaluations);
+				valueQueries.increment();
+				gateEvaluationsPerQuery.record(probe.evaluations);
+				GateEvaluationEvent event = probe.evaluationEvent;
+				probe.evaluationEvent = null;
+				event.end();
+				if (event.shouldCommit()) {
+					event.variable = variable.getName();
+					event.gateEvaluations = probe.evaluations;
+					event.depth = probe.maxEvaluationDepth;
+					event.commit();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Starts the cycle check of a new gate.
+	 * 
+	 * @return the started event, or null if the metrics are disabled
+	 */
+	static CycleCheckEvent beginCycleCheck() {
+		if (!enabled)
+			return null;
+		Probe probe = probes.get();
+		probe.dependsOnDepth = 0;
+		probe.maxDependsOnDepth = 0;
+		probe.dependsOnCalls = 0;
+		CycleCheckEvent event = new CycleCheckEvent();
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * Ends a cycle check started with beginCycleCheck; does nothing if event is null.
+	 */
+	static void endCycleCheck(CycleCheckEvent event, LogicVariable output) {
+		if (event == null)
+			return;
+		Probe probe = probes.get();
+		cycleChecks.increment();
+		cycleCheckDepth.record(probe.maxDependsOnDepth);
+		event.end();
+		if (event.shouldCommit()) {
+			event.output = output.getName();
+			event.dependsOnCalls = probe.dependsOnCalls;
+			event.depth = probe.maxDependsOnDepth;
+			event.commit();
+		}
+	}
+
+	static void enterDependsOn() {
+		Probe probe = probes.get();
+		dependsOnCalls.increment();
+		probe.dependsOnCalls++;
+		probe.maxDependsOnDepth = Math.max(probe.maxDependsOnDepth, ++probe.dependsOnDepth);
+	}
+
+	static void exitDependsOn() {
+		probes.get().dependsOnDepth--;
+	}
+
+	/**
+	 * Histogram of non-negative values, with power of two buckets: bucket 0
+	 * counts the zeros and bucket b > 0 the values in [2^(b-1), 2^b).
+	 * Same as IntegrationMetrics.Histogram of NormalDistribution, which is a
+	 * separate project this one does not depend on.
+	 */
+	public static final class Histogram {
+
+		private final AtomicLongArray buckets = new AtomicLongArray(64);
+		private final LongAdder count = new LongAdder();
+		private final LongAdder sum = new LongAdder();
+		private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+		void record(long value) {
+			buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(value));
+			count.increment();
+			sum.add(value);
+			max.accumulate(value);
+		}
+
+		void reset() {
+			for (int i = 0; i < buckets.length(); i++)
+				buckets.set(i, 0);
+			count.reset();
+			sum.reset();
+			max.reset();
+		}
+
+		public long getCount() {
+			return count.sum();
+		}
+
+		public double getMean() {
+			long n = count.sum();
+			return n == 0 ? Double.NaN : (double) sum.sum() / n;
+		}
+
+		public long getMax() {
+			return max.get();
+		}
+
+		public long getBucketCount(int bucket) {
+			return buckets.get(bucket);
+		}
+
+		@Override
+		public String toString() {
+			return "count=" + getCount() + ", mean=" + getMean() + ", max=" + getMax();
+		}
+	}
+
+}
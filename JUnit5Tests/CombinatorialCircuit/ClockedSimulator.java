@@ -0,0 +1,173 @@
+package circuits;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Cycle based simulator of a sequential circuit. The gates between the
+ * registers are evaluated once per clock cycle in a precomputed order, over
+ * signal vectors where each bit is an independent instance of the circuit
+ * (64 instances per long), so many instances are simulated at the cost of one.
+ * 
+ * <p>
+ * Primary inputs (leaves that are not register outputs) start as false in
+ * every instance and are set with setInput; they keep their value across
+ * cycles. The simulator keeps its own state: it neither reads nor changes the
+ * values of the circuit variables. It therefore only simulates the gates
+ * GateAnd, GateOr and GateNot, not subclasses of them nor other gates, whose
+ * getValue would read those variables.
+ */
+public class ClockedSimulator {
+
+	private Schedule schedule;
+	private int instances;
+	private int words;
+	private long[] values; // signal s of instance i is bit i % 64 of values[s * words + i / 64]
+	private long[] next; // register inputs latched at the end of a cycle
+	private int[] registerOutputs;
+	private int[] registerInputs;
+	private long[] initialState;
+	private long cycle;
+	private boolean settled;
+
+	public ClockedSimulator(List<Register> registers, int instances, LogicVariable... outputs) {
+		if (instances <= 0)
+			throw new IllegalArgumentException("violates: instances > 0");
+		List<LogicVariable> roots = new ArrayList<>();
+		for (Register register : registers)
+			roots.add(register.getInput());
+		roots.addAll(Arrays.asList(outputs));
+		schedule = new Schedule(roots.toArray(new LogicVariable[0]));
+		if (schedule.getOpaqueGate() != null)
+			throw new IllegalArgumentException("unsupported gate " + schedule.getOpaqueGate().getSymbol());
+
+		this.instances = instances;
+		words = (instances + 63) >>> 6;
+		values = new long[schedule.getSignalCount() * words];
+		next = new long[registers.size() * words];
+		registerOutputs = new int[registers.size()];
+		registerInputs = new int[registers.size()];
+		initialState = new long[registers.size()];
+		for (int r = 0; r < registerOutputs.length; r++) {
+			Register register = registers.get(r);
+			// An output no gate depends on is not a signal yet; leave it out of the schedule
+			registerOutputs[r] = schedule.indexOf(register.getOutput());
+			registerInputs[r] = schedule.indexOf(register.getInput());
+			initialState[r] = register.getInitialValue() ? -1L : 0L;
+		}
+		reset();
+	}
+
+	public int getInstances() {
+		return instances;
+	}
+
+	/**
+	 * @return the number of cycles since the last reset
+	 */
+	public long getCycle() {
+		return cycle;
+	}
+
+	/**
+	 * Sets the registers back to their initial values and the inputs to false,
+	 * in every instance.
+	 */
+	public void reset() {
+		Arrays.fill(values, 0L);
+		for (int r = 0; r < registerOutputs.length; r++)
+			if (registerOutputs[r] >= 0)
+				Arrays.fill(values, registerOutputs[r] * words, (registerOutputs[r] + 1) * words, initialState[r]);
+		cycle = 0;
+		settled = false;
+	}
+
+	/**
+	 * Sets an input, or the output of a register, in one instance.
+	 */
+	public void setInput(LogicVariable input, int instance, boolean value) {
+		int index = word(leaf(input), instance);
+		long bit = 1L << instance;
+		values[index] = value ? values[index] | bit : values[index] & ~bit;
+		settled = false;
+	}
+
+	/**
+	 * Sets an input, or the output of a register, in 64 instances at once: bit
+	 * b of bits is the value for instance word * 64 + b.
+	 */
+	public void setInputWord(LogicVariable input, int word, long bits) {
+		int signal = leaf(input);
+		if (word < 0 || word >= words)
+			throw new IndexOutOfBoundsException("word " + word);
+		values[signal * words + word] = bits;
+		settled = false;
+	}
+
+	/**
+	 * @return the value of a variable in one instance, in the current cycle
+	 */
+	public boolean getValue(LogicVariable lv, int instance) {
+		settle();
+		return (values[word(signal(lv), instance)] >>> instance & 1) != 0;
+	}
+
+	/**
+	 * @return the values of a variable in instances word * 64 to word * 64 + 63
+	 */
+	public long getValueWord(LogicVariable lv, int word) {
+		settle();
+		if (word < 0 || word >= words)
+			throw new IndexOutOfBoundsException("word " + word);
+		return values[signal(lv) * words + word];
+	}
+
+	/**
+	 * Simulates one clock cycle: evaluates the gates, then latches the register
+	 * inputs into the register outputs.
+	 */
+	public void step() {
+		settle();
+		for (int r = 0; r < registerInputs.length; r++)
+			System.arraycopy(values, registerInputs[r] * words, next, r * words, words);
+		for (int r = 0; r < registerOutputs.length; r++)
+			if (registerOutputs[r] >= 0)
+				System.arraycopy(next, r * words, values, registerOutputs[r] * words, words);
+		cycle++;
+		settled = false;
+	}
+
+	public void run(long cycles) {
+		for (long c = 0; c < cycles; c++)
+			step();
+	}
+
+	private void settle() {
+		if (!settled) {
+			schedule.evaluate(values, words);
+			settled = true;
+		}
+	}
+
+	private int signal(LogicVariable lv) {
+		int signal = schedule.indexOf(lv);
+		if (signal < 0)
+			throw new IllegalArgumentException("not simulated: " + lv.getName());
+		return signal;
+	}
+
+	private int leaf(LogicVariable lv) {
+		int signal = signal(lv);
+		if (signal >= schedule.getLeafCount())
+			throw new IllegalArgumentException("calculated by a gate: " + lv.getName());
+		return signal;
+	}
+
+	private int word(int signal, int instance) {
+		if (instance < 0 || instance >= instances)
+			throw new IndexOutOfBoundsException("instance " + instance);
+		return signal * words + (instance >>> 6);
+	}
+
+}
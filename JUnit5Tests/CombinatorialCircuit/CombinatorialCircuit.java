@@ -1,10 +1,26 @@
 package circuits;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public class CombinatorialCircuit {
 
+	/**
+	 * Maximum number of cones of influence kept by getConeOfInfluence.
+	 */
+	public static final int CONE_CACHE_SIZE = 64;
+
 	HashMap<String, LogicVariable> lv = new HashMap<>();
+	private Map<OutputSet, ConeOfInfluence> cones = new LinkedHashMap<OutputSet, ConeOfInfluence>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<OutputSet, ConeOfInfluence> eldest) {
+			return size() > CONE_CACHE_SIZE;
+		}
+	};
+
 	public boolean addVariable(LogicVariable newLv) {
 		if(lv.containsKey(newLv.getName()))
 			return false;
@@ -15,5 +31,53 @@ public class CombinatorialCircuit {
 	public LogicVariable getVariableByName(String lvName) {
 		return lv.get(lvName);
 	}
+
+	/**
+	 * @return the sub-circuit that calculates the given outputs, cached per
+	 *         sequence of outputs and extracted again if gates were added to it
+	 */
+	public ConeOfInfluence getConeOfInfluence(LogicVariable... outputs) {
+		OutputSet key = new OutputSet(outputs.clone());
+		ConeOfInfluence cone = cones.get(key);
+		if (cone == null || cone.isStale()) {
+			cone = new ConeOfInfluence(key.outputs);
+			cones.put(key, cone);
+		}
+		return cone;
+	}
+
+	/**
+	 * Cache key comparing the outputs by identity (LogicVariable.hashCode
+	 * requires a value).
+	 */
+	private static final class OutputSet {
+
+		private final LogicVariable[] outputs;
+
+		OutputSet(LogicVariable[] outputs) {
+			this.outputs = outputs;
+		}
+
+		@Override
+		public int hashCode() {
+			int hash = 1;
+			for (LogicVariable output : outputs)
+				hash = 31 * hash + System.identityHashCode(output);
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof OutputSet))
+				return false;
+			LogicVariable[] other = ((OutputSet) obj).outputs;
+			if (other.length != outputs.length)
+				return false;
+			for (int i = 0; i < outputs.length; i++)
+				if (other[i] != outputs[i])
+					return false;
+			return true;
+		}
+	}
 	
 }
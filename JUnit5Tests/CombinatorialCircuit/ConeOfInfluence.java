@@ -0,0 +1,127 @@
+package circuits;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Minimal sub-circuit that calculates some output variables: the gates they
+ * depend on, directly or indirectly, and the inputs (variables not calculated
+ * by a gate) those gates read. Evaluation only computes these gates, once each.
+ * The cone also indexes which variables each output depends on, so that
+ * dependency queries are answered without walking the gates again. Variables
+ * are matched by identity, not by name. Gates other than GateAnd, GateOr and
+ * GateNot (or subclasses of them) are evaluated by their own getValue.
+ */
+public class ConeOfInfluence {
+
+	private Schedule schedule;
+	private LogicVariable[] outputs;
+	private int[] outputSignals;
+	private BitSet[] dependencies; // signals each output depends on, itself excluded
+
+	ConeOfInfluence(LogicVariable... outputs) {
+		this.outputs = outputs.clone();
+		schedule = new Schedule(this.outputs);
+		outputSignals = new int[outputs.length];
+		dependencies = new BitSet[outputs.length];
+		for (int i = 0; i < outputs.length; i++) {
+			outputSignals[i] = schedule.indexOf(outputs[i]);
+			dependencies[i] = reachableFrom(outputSignals[i]);
+		}
+	}
+
+	private BitSet reachableFrom(int signal) {
+		BitSet reached = new BitSet(schedule.getSignalCount());
+		Deque<Integer> stack = new ArrayDeque<>();
+		stack.push(signal);
+		while (!stack.isEmpty())
+			for (int input : schedule.inputsOf(stack.pop()))
+				if (!reached.get(input)) {
+					reached.set(input);
+					stack.push(input);
+				}
+		return reached;
+	}
+
+	public List<LogicVariable> getOutputs() {
+		return Collections.unmodifiableList(Arrays.asList(outputs));
+	}
+
+	/**
+	 * @return the variables not calculated by a gate that the outputs depend on
+	 *         (including outputs that are not calculated by a gate themselves)
+	 */
+	public List<LogicVariable> getInputs() {
+		List<LogicVariable> inputs = new ArrayList<>();
+		for (int i = 0; i < schedule.getLeafCount(); i++)
+			inputs.add(schedule.getSignal(i));
+		return inputs;
+	}
+
+	/**
+	 * @return the number of gates in the cone
+	 */
+	public int getGateCount() {
+		return schedule.getGateCount();
+	}
+
+	/**
+	 * @return the inputs that an output depends on
+	 */
+	public List<LogicVariable> getDependencies(LogicVariable output) {
+		BitSet reached = dependencies[indexOf(output)];
+		List<LogicVariable> inputs = new ArrayList<>();
+		for (int s = reached.nextSetBit(0); s >= 0 && s < schedule.getLeafCount(); s = reached.nextSetBit(s + 1))
+			inputs.add(schedule.getSignal(s));
+		return inputs;
+	}
+
+	/**
+	 * Same as output.dependsOn(lv), from the precomputed index.
+	 */
+	public boolean dependsOn(LogicVariable output, LogicVariable lv) {
+		BitSet reached = dependencies[indexOf(output)];
+		int signal = schedule.indexOf(lv);
+		return signal >= 0 && reached.get(signal);
+	}
+
+	/**
+	 * Evaluates the cone with the current values of its inputs.
+	 * 
+	 * @return the value of each output, in the order they were requested
+	 */
+	public boolean[] evaluate() {
+		long[] values = new long[schedule.getSignalCount()];
+		for (int i = 0; i < schedule.getLeafCount(); i++)
+			values[i] = schedule.getSignal(i).getValue() ? -1L : 0L;
+		schedule.evaluate(values, 1);
+		boolean[] result = new boolean[outputs.length];
+		for (int i = 0; i < outputs.length; i++)
+			result[i] = values[outputSignals[i]] != 0;
+		return result;
+	}
+
+	/**
+	 * @return whether a gate was added to calculate one of the inputs since the
+	 *         cone was extracted, so the cone no longer covers all the gates
+	 */
+	public boolean isStale() {
+		for (int i = 0; i < schedule.getLeafCount(); i++)
+			if (schedule.getSignal(i).getCalculatedBy() != null)
+				return true;
+		return false;
+	}
+
+	private int indexOf(LogicVariable output) {
+		for (int i = 0; i < outputs.length; i++)
+			if (outputs[i] == output)
+				return i;
+		throw new IllegalArgumentException("not an output of the cone: " + output.getName());
+	}
+
+}
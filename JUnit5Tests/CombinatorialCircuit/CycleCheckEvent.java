@@ -0,0 +1,23 @@
+package circuits;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("circuits.CycleCheck")
+@Label("Cycle Check")
+@Category({ "JUnit5Tests", "Circuits" })
+@Description("dependsOn recursion done by a LogicGate constructor to reject cycles")
+class CycleCheckEvent extends jdk.jfr.Event {
+
+	@Label("Output")
+	String output;
+
+	@Label("dependsOn Calls")
+	long dependsOnCalls;
+
+	@Label("Depth")
+	int depth;
+
+}
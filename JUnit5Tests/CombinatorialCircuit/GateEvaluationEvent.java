@@ -0,0 +1,23 @@
+package circuits;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("circuits.GateEvaluation")
+@Label("Gate Evaluation")
+@Category({ "JUnit5Tests", "Circuits" })
+@Description("Gates evaluated to get the value of a calculated variable")
+class GateEvaluationEvent extends jdk.jfr.Event {
+
+	@Label("Variable")
+	String variable;
+
+	@Label("Gate Evaluations")
+	long gateEvaluations;
+
+	@Label("Depth")
+	int depth;
+
+}
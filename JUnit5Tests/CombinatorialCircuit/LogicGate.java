@@ -6,13 +6,18 @@ public abstract class LogicGate {
 	protected LogicVariable [] inputs;
 	
 	public LogicGate(LogicVariable output, LogicVariable ... inputs) throws ColisionException, CycleException {
-		if (output.getCalculatedBy() != null)
+		if (output.getCalculatedBy() != null || output.getRegister() != null)
 			throw new ColisionException();
 		this.output = output;
 		this.inputs = inputs;
-		for (LogicVariable input : inputs) {
-			if(input.equals(output) || input.dependsOn(output))
-				throw new CycleException();
+		CycleCheckEvent event = CircuitMetrics.beginCycleCheck();
+		try {
+			for (LogicVariable input : inputs) {
+				if(input.equals(output) || input.dependsOn(output))
+					throw new CycleException();
+			}
+		} finally {
+			CircuitMetrics.endCycleCheck(event, output);
 		}
 		output.setCalculatedBy(this);
 	}
@@ -42,6 +47,17 @@ public abstract class LogicGate {
 	}
 	
 	public boolean dependsOn(LogicVariable lv) {
+		if (!CircuitMetrics.isEnabled())
+			return inputsDependOn(lv);
+		CircuitMetrics.enterDependsOn();
+		try {
+			return inputsDependOn(lv);
+		} finally {
+			CircuitMetrics.exitDependsOn();
+		}
+	}
+
+	private boolean inputsDependOn(LogicVariable lv) {
 
 		for (LogicVariable input : inputs) {
 			if(input.equals(lv) || input.dependsOn(lv))
@@ -5,6 +5,7 @@ public class LogicVariable {
 	private String name;
 	private Boolean value;
 	private LogicGate calculatedBy;
+	private Register register;
 	
 	public LogicVariable(String name, boolean value) {
 		this.name = name;
@@ -20,6 +21,8 @@ public class LogicVariable {
 	}
 
 	public boolean getValue() {
+		if (calculatedBy != null && CircuitMetrics.isEnabled())
+			return CircuitMetrics.evaluate(this);
 		return (calculatedBy == null) ? value : calculatedBy.getValue();
 	}
 
@@ -63,6 +66,14 @@ public class LogicVariable {
 		calculatedBy = gate;
 	}
 
+	public Register getRegister() {
+		return register;
+	}
+
+	void setRegister(Register register) {
+		this.register = register;
+	}
+
 	public String getFormula() {
 		return (calculatedBy == null) ? name : calculatedBy.getFormula();
 	}
@@ -0,0 +1,37 @@
+package circuits;
+
+/**
+ * Clocked storage element (D flip-flop): at each clock its output takes the
+ * value its input had before the clock. The output is not calculated by a gate,
+ * so gates may use it to feed back into the register input without forming a
+ * cycle.
+ */
+public class Register {
+
+	private LogicVariable output;
+	private LogicVariable input;
+	private boolean initialValue;
+
+	public Register(LogicVariable output, LogicVariable input, boolean initialValue) throws ColisionException {
+		if (output.getCalculatedBy() != null || output.getRegister() != null)
+			throw new ColisionException();
+		this.output = output;
+		this.input = input;
+		this.initialValue = initialValue;
+		output.setRegister(this);
+		output.setValue(initialValue);
+	}
+
+	public LogicVariable getOutput() {
+		return output;
+	}
+
+	public LogicVariable getInput() {
+		return input;
+	}
+
+	public boolean getInitialValue() {
+		return initialValue;
+	}
+
+}
@@ -0,0 +1,182 @@
+package circuits;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Precomputed evaluation order of the gates needed to calculate some root
+ * variables. Every variable involved is a signal with an index: first the
+ * leaves (variables not calculated by a gate), then the gate outputs in
+ * topological order. The gates are evaluated over an array of signal values
+ * with words longs per signal, so that each bit is an independent instance of
+ * the circuit.
+ * 
+ * <p>
+ * The graph only relies on LogicGate.getInputs, so any gate can be scheduled.
+ * Only the exact classes GateAnd, GateOr and GateNot are evaluated bit-parallel;
+ * other gates, subclasses of those included since they may override getValue,
+ * are opaque: see evaluate.
+ */
+final class Schedule {
+
+	private static final byte AND = 0, OR = 1, NOT = 2, OPAQUE = 3;
+	private static final int[] NO_INPUTS = new int[0];
+
+	private final LogicVariable[] signals;
+	private final Map<LogicVariable, Integer> indexes = new IdentityHashMap<>();
+	private final int leafCount;
+	private final byte[] operations;
+	private final int[][] inputs; // signal indexes of the inputs of each gate
+	private final LogicGate[] gates;
+	private final LogicGate opaque; // the first opaque gate, or null
+
+	Schedule(LogicVariable... roots) {
+		// Depth first search from the roots, adding each gate output after its
+		// inputs (without recursion, for deep circuits)
+		List<LogicVariable> leaves = new ArrayList<>();
+		List<LogicVariable> outputs = new ArrayList<>();
+		Map<LogicVariable, Boolean> visited = new IdentityHashMap<>();
+		Deque<LogicVariable> stack = new ArrayDeque<>();
+		Deque<Integer> nextInput = new ArrayDeque<>();
+		for (LogicVariable root : roots) {
+			if (visited.put(root, Boolean.TRUE) != null)
+				continue;
+			stack.push(root);
+			nextInput.push(0);
+			while (!stack.isEmpty()) {
+				LogicVariable lv = stack.peek();
+				LogicGate gate = lv.getCalculatedBy();
+				int i = nextInput.pop();
+				if (gate == null) {
+					leaves.add(stack.pop());
+				} else if (i < gate.getInputs().length) {
+					nextInput.push(i + 1);
+					LogicVariable input = gate.getInputs()[i];
+					if (visited.put(input, Boolean.TRUE) == null) {
+						stack.push(input);
+						nextInput.push(0);
+					}
+				} else {
+					outputs.add(stack.pop());
+				}
+			}
+		}
+
+		leafCount = leaves.size();
+		signals = new LogicVariable[leafCount + outputs.size()];
+		for (int i = 0; i < leafCount; i++)
+			signals[i] = leaves.get(i);
+		for (int i = 0; i < outputs.size(); i++)
+			signals[leafCount + i] = outputs.get(i);
+		for (int i = 0; i < signals.length; i++)
+			indexes.put(signals[i], i);
+
+		operations = new byte[outputs.size()];
+		inputs = new int[operations.length][];
+		gates = new LogicGate[operations.length];
+		LogicGate firstOpaque = null;
+		for (int g = 0; g < operations.length; g++) {
+			LogicGate gate = outputs.get(g).getCalculatedBy();
+			LogicVariable[] gateInputs = gate.getInputs();
+			gates[g] = gate;
+			inputs[g] = new int[gateInputs.length];
+			for (int i = 0; i < gateInputs.length; i++)
+				inputs[g][i] = indexes.get(gateInputs[i]);
+			if (gate.getClass() == GateAnd.class)
+				operations[g] = AND;
+			else if (gate.getClass() == GateOr.class)
+				operations[g] = OR;
+			else if (gate.getClass() == GateNot.class)
+				operations[g] = NOT;
+			else {
+				operations[g] = OPAQUE;
+				if (firstOpaque == null)
+					firstOpaque = gate;
+			}
+		}
+		opaque = firstOpaque;
+	}
+
+	int getSignalCount() {
+		return signals.length;
+	}
+
+	int getLeafCount() {
+		return leafCount;
+	}
+
+	int getGateCount() {
+		return operations.length;
+	}
+
+	LogicVariable getSignal(int index) {
+		return signals[index];
+	}
+
+	/**
+	 * @return the index of a signal, or -1 if the schedule does not involve it
+	 */
+	int indexOf(LogicVariable lv) {
+		Integer index = indexes.get(lv);
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * @return the first gate that is not evaluated bit-parallel, or null if
+	 *         there is none
+	 */
+	LogicGate getOpaqueGate() {
+		return opaque;
+	}
+
+	/**
+	 * @return the indexes of the inputs of the gate that calculates a signal
+	 *         (shared, not to be modified)
+	 */
+	int[] inputsOf(int signal) {
+		int g = signal - leafCount;
+		return g < 0 ? NO_INPUTS : inputs[g];
+	}
+
+	/**
+	 * Calculates the gate outputs from the leaves, in values[signal * words + w].
+	 * Opaque gates are calculated by their getValue, which reads the variables of
+	 * the circuit rather than values: their outputs are only right when every
+	 * instance has the current values of the circuit variables in its leaves.
+	 */
+	void evaluate(long[] values, int words) {
+		for (int g = 0; g < operations.length; g++) {
+			int[] in = inputs[g];
+			int out = (leafCount + g) * words;
+			switch (operations[g]) {
+			case AND: {
+				int a = in[0] * words, b = in[1] * words;
+				for (int w = 0; w < words; w++)
+					values[out + w] = values[a + w] & values[b + w];
+				break;
+			}
+			case OR: {
+				int a = in[0] * words, b = in[1] * words;
+				for (int w = 0; w < words; w++)
+					values[out + w] = values[a + w] | values[b + w];
+				break;
+			}
+			case NOT: {
+				int a = in[0] * words;
+				for (int w = 0; w < words; w++)
+					values[out + w] = ~values[a + w];
+				break;
+			}
+			default:
+				long value = gates[g].getValue() ? -1L : 0L;
+				for (int w = 0; w < words; w++)
+					values[out + w] = value;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,52 @@
+package circuits;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Circuit of logic gates and registers, where the registers hold the state
+ * between clock cycles.
+ */
+public class SequentialCircuit extends CombinatorialCircuit {
+
+	private List<Register> registers = new ArrayList<>();
+
+	/**
+	 * Adds a register, and its output and input variables if there are no
+	 * variables with their names yet.
+	 */
+	public void addRegister(Register register) {
+		registers.add(register);
+		addVariable(register.getOutput());
+		addVariable(register.getInput());
+	}
+
+	public List<Register> getRegisters() {
+		return Collections.unmodifiableList(registers);
+	}
+
+	/**
+	 * Clocks the registers once, by evaluating the gates through the variables.
+	 * See newSimulator for fast simulation of many cycles.
+	 */
+	public void tick() {
+		boolean[] next = new boolean[registers.size()];
+		for (int i = 0; i < next.length; i++)
+			next[i] = registers.get(i).getInput().getValue();
+		for (int i = 0; i < next.length; i++)
+			registers.get(i).getOutput().setValue(next[i]);
+	}
+
+	/**
+	 * @param instances number of independent copies of the circuit to simulate
+	 * @param outputs variables to observe besides the registers
+	 * @return a simulator of the current gates and registers of this circuit
+	 * @throws IllegalArgumentException if a gate is not exactly a GateAnd, GateOr
+	 *                                  or GateNot
+	 */
+	public ClockedSimulator newSimulator(int instances, LogicVariable... outputs) {
+		return new ClockedSimulator(registers, instances, outputs);
+	}
+
+}
@@ -259,6 +259,266 @@ public class TestLogicCircuits {
 
 	}
 
+	/**
+	 * Tests the counters and histograms of the circuit metrics
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void testCircuitMetrics() throws Exception {
+		CircuitMetrics.reset();
+		CircuitMetrics.setEnabled(true);
+		try {
+			LogicVariable x1 = new LogicVariable("x1", true);
+			LogicVariable x2 = new LogicVariable("x2", false);
+			LogicVariable x3 = new LogicVariable("x3", true);
+			LogicVariable w1 = new LogicVariable("w1");
+			LogicVariable w2 = new LogicVariable("w2");
+			LogicVariable y1 = new LogicVariable("y1");
+
+			new GateAnd(w1, x1, x2);
+			new GateOr(w2, w1, x3);
+			new GateNot(y1, w2);
+			assertEquals(3, CircuitMetrics.getCycleChecks());
+			assertEquals(2, CircuitMetrics.getCycleCheckDepth().getMax());
+
+			assertEquals(false, y1.getValue());
+			assertEquals(true, x1.getValue()); // not calculated, not counted
+			assertEquals(1, CircuitMetrics.getValueQueries());
+			assertEquals(3, CircuitMetrics.getGateEvaluations());
+			assertEquals(1, CircuitMetrics.getGateEvaluationsPerQuery().getBucketCount(2));
+		} finally {
+			CircuitMetrics.setEnabled(false);
+			CircuitMetrics.reset();
+		}
+		assertEquals(0, CircuitMetrics.getGateEvaluations());
+	}
+
+	// Auxiliary method used by some test methods.
+	private LogicVariable xor(String name, LogicVariable a, LogicVariable b) throws Exception {
+		LogicVariable or = new LogicVariable(name + "_or");
+		LogicVariable and = new LogicVariable(name + "_and");
+		LogicVariable nand = new LogicVariable(name + "_nand");
+		LogicVariable y = new LogicVariable(name);
+		new GateOr(or, a, b);
+		new GateAnd(and, a, b);
+		new GateNot(nand, and);
+		new GateAnd(y, or, nand);
+		return y;
+	}
+
+	/**
+	 * Tests a register fed back through a gate (toggle flip-flop) and that
+	 * register outputs cannot be calculated by gates
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void testRegister() throws Exception {
+		LogicVariable q = new LogicVariable("q");
+		LogicVariable d = new LogicVariable("d");
+		new GateNot(d, q);
+		Register r = new Register(q, d, false);
+		assertSame(r, q.getRegister());
+		assertEquals(false, q.getValue());
+		assertThrows(ColisionException.class, () -> new GateNot(q, d));
+		assertThrows(ColisionException.class, () -> new Register(q, d, true));
+		assertThrows(ColisionException.class, () -> new Register(d, q, true));
+
+		SequentialCircuit c = new SequentialCircuit();
+		c.addRegister(r);
+		assertSame(d, c.getVariableByName("d"));
+		for (int i = 1; i <= 5; i++) {
+			c.tick();
+			assertEquals(i % 2 == 1, q.getValue());
+		}
+		fieldsArePrivateOrProtected(Register.class, SequentialCircuit.class, ClockedSimulator.class);
+	}
+
+	/**
+	 * Tests the simulation of a 2 bit counter with enable, in 130 instances
+	 * where only the even ones are enabled
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void testClockedSimulator() throws Exception {
+		LogicVariable e = new LogicVariable("e", false);
+		LogicVariable q0 = new LogicVariable("q0");
+		LogicVariable q1 = new LogicVariable("q1");
+		LogicVariable carry = new LogicVariable("carry");
+		new GateAnd(carry, q0, e);
+		LogicVariable d0 = xor("d0", q0, e);
+		LogicVariable d1 = xor("d1", q1, carry);
+		SequentialCircuit c = new SequentialCircuit();
+		c.addRegister(new Register(q0, d0, false));
+		c.addRegister(new Register(q1, d1, false));
+
+		ClockedSimulator sim = c.newSimulator(130, carry);
+		assertEquals(130, sim.getInstances());
+		for (int i = 0; i < 130; i += 2)
+			sim.setInput(e, i, true);
+		for (int cycle = 1; cycle <= 9; cycle++) {
+			sim.step();
+			e.setValue(true);
+			c.tick();
+			assertEquals(cycle, sim.getCycle());
+			for (int i = 0; i < 130; i++) {
+				int count = (i % 2 == 0 ? cycle : 0) % 4;
+				assertEquals((count & 1) != 0, sim.getValue(q0, i));
+				assertEquals((count & 2) != 0, sim.getValue(q1, i));
+			}
+			assertEquals(cycle % 4, (q0.getValue() ? 1 : 0) + (q1.getValue() ? 2 : 0));
+		}
+		assertEquals(0x5555555555555555L, sim.getValueWord(carry, 0)); // q0 set at cycle 9
+
+		sim.setInputWord(e, 0, -1L);
+		sim.run(1_000_001);
+		assertEquals(1_000_010, sim.getCycle());
+		assertEquals(true, sim.getValue(q0, 1)); // counted 1_000_001 cycles
+		assertEquals(false, sim.getValue(q1, 1));
+		assertEquals(false, sim.getValue(q0, 0)); // counted 1_000_010 cycles
+		assertEquals(true, sim.getValue(q1, 0));
+
+		sim.reset();
+		assertEquals(0, sim.getCycle());
+		assertEquals(0L, sim.getValueWord(q0, 2));
+		assertThrows(IllegalArgumentException.class, () -> sim.setInput(d0, 0, true));
+		assertThrows(IllegalArgumentException.class, () -> sim.getValue(new LogicVariable("z"), 0));
+		assertThrows(IndexOutOfBoundsException.class, () -> sim.getValue(q0, 130));
+		assertThrows(IllegalArgumentException.class, () -> c.newSimulator(0));
+	}
+
+	/**
+	 * Tests that a cone of influence only contains the gates and inputs of the
+	 * requested outputs, agrees with getValue and dependsOn, and is cached until
+	 * a gate is added to it
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void testConeOfInfluence() throws Exception {
+		LogicVariable x1 = new LogicVariable("x1", true);
+		LogicVariable x2 = new LogicVariable("x2", false);
+		LogicVariable x3 = new LogicVariable("x3", true);
+		LogicVariable x4 = new LogicVariable("x4", true);
+		LogicVariable w1 = new LogicVariable("w1");
+		LogicVariable w2 = new LogicVariable("w2");
+		LogicVariable y1 = new LogicVariable("y1");
+		LogicVariable y2 = new LogicVariable("y2");
+		LogicVariable y3 = new LogicVariable("y3");
+		new GateAnd(w1, x1, x2);
+		new GateOr(w2, w1, x3);
+		new GateNot(y1, w2);
+		new GateNot(y2, w1);
+		new GateNot(y3, x4);
+
+		CombinatorialCircuit c = new CombinatorialCircuit();
+		ConeOfInfluence cone = c.getConeOfInfluence(y1, y2);
+		assertSame(cone, c.getConeOfInfluence(y1, y2));
+		assertNotSame(cone, c.getConeOfInfluence(y2, y1));
+		assertEquals(Arrays.asList(y1, y2), cone.getOutputs());
+		assertEquals(4, cone.getGateCount()); // not y3
+		assertEquals(3, cone.getInputs().size());
+		assertFalse(cone.getInputs().contains(x4));
+		assertEquals(Arrays.asList(x1, x2), cone.getDependencies(y2));
+		assertEquals(3, cone.getDependencies(y1).size());
+
+		for (LogicVariable output : cone.getOutputs())
+			for (LogicVariable lv : Arrays.asList(x1, x2, x3, x4, w1, w2, y1, y2))
+				assertEquals(output.dependsOn(lv), cone.dependsOn(output, lv));
+		assertThrows(IllegalArgumentException.class, () -> cone.dependsOn(y3, x4));
+
+		for (int inputs = 0; inputs < 8; inputs++) {
+			x1.setValue((inputs & 1) != 0);
+			x2.setValue((inputs & 2) != 0);
+			x3.setValue((inputs & 4) != 0);
+			boolean[] values = cone.evaluate();
+			assertEquals(y1.getValue(), values[0]);
+			assertEquals(y2.getValue(), values[1]);
+		}
+
+		// A gate calculating an input of the cone makes it stale
+		LogicVariable x0 = new LogicVariable("x0", false);
+		new GateNot(x3, x0);
+		assertTrue(cone.isStale());
+		ConeOfInfluence extended = c.getConeOfInfluence(y1, y2);
+		assertNotSame(cone, extended);
+		assertEquals(5, extended.getGateCount());
+		assertTrue(extended.dependsOn(y1, x0));
+		assertFalse(extended.dependsOn(y2, x0));
+		fieldsArePrivateOrProtected(ConeOfInfluence.class);
+	}
+
+	private static class GateXor extends LogicGate {
+
+		GateXor(LogicVariable output, LogicVariable input1, LogicVariable input2) throws ColisionException, CycleException {
+			super(output, input1, input2);
+		}
+
+		@Override
+		public String getSymbol() {
+			return "XOR";
+		}
+
+		@Override
+		public boolean getValue() {
+			return inputs[0].getValue() != inputs[1].getValue();
+		}
+	}
+
+	private static class GateNand extends GateAnd {
+
+		GateNand(LogicVariable output, LogicVariable input1, LogicVariable input2) throws ColisionException, CycleException {
+			super(output, input1, input2);
+		}
+
+		@Override
+		public boolean getValue() {
+			return !super.getValue();
+		}
+	}
+
+	/**
+	 * Tests that cones of influence handle gates of other classes, and
+	 * subclasses of the basic gates, through their getValue, and that the
+	 * clocked simulator rejects them
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void testOtherGates() throws Exception {
+		LogicVariable x1 = new LogicVariable("x1", false);
+		LogicVariable x2 = new LogicVariable("x2", false);
+		LogicVariable x3 = new LogicVariable("x3", false);
+		LogicVariable w = new LogicVariable("w");
+		LogicVariable y1 = new LogicVariable("y1");
+		LogicVariable y2 = new LogicVariable("y2");
+		new GateXor(w, x1, x2);
+		new GateNand(y1, w, x3);
+		new GateNot(y2, w);
+
+		ConeOfInfluence cone = new CombinatorialCircuit().getConeOfInfluence(y1, y2);
+		assertEquals(3, cone.getGateCount());
+		assertEquals(Arrays.asList(x1, x2), cone.getDependencies(y2));
+		for (LogicVariable output : cone.getOutputs())
+			for (LogicVariable lv : Arrays.asList(x1, x2, x3, w, y1, y2))
+				assertEquals(output.dependsOn(lv), cone.dependsOn(output, lv));
+		for (int inputs = 0; inputs < 8; inputs++) {
+			x1.setValue((inputs & 1) != 0);
+			x2.setValue((inputs & 2) != 0);
+			x3.setValue((inputs & 4) != 0);
+			boolean[] values = cone.evaluate();
+			assertEquals(y1.getValue(), values[0]);
+			assertEquals(y2.getValue(), values[1]);
+		}
+
+		SequentialCircuit c = new SequentialCircuit();
+		c.addRegister(new Register(x3, y1, false));
+		assertThrows(IllegalArgumentException.class, () -> c.newSimulator(1));
+		fieldsArePrivateOrProtected(Schedule.class);
+	}
+
 	/**
 	 * Test for HashMap data structure. Avoid duplication name values (keys)
 	 */
@@ -273,4 +533,4 @@ public class TestLogicCircuits {
 		assertSame(null, c.getVariableByName("x2"));
 	}
 
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -16,4 +16,18 @@ public interface Function {
 	 */
 	double evaluate(double x);
 
-}
\ No newline at end of file
+	/**
+	 * Calculates the values of the function for a batch of arguments, storing
+	 * evaluate(xs[i]) in out[i]. The default implementation calls evaluate once
+	 * per argument; implementations should override it with a plain loop over
+	 * the arrays, which the JIT is able to unroll and vectorize.
+	 * 
+	 * @param xs function arguments
+	 * @param out receives the function values, must be at least as long as xs
+	 */
+	default void evaluate(double[] xs, double[] out) {
+		for (int i = 0; i < xs.length; i++)
+			out[i] = evaluate(xs[i]);
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,191 @@
+package numerics;
+
+import java.util.PriorityQueue;
+
+/**
+ * Class that implements adaptive Gauss-Kronrod (G7K15) numerical integration.
+ * Each segment is integrated with the 15-point Kronrod rule, whose difference to
+ * the embedded 7-point Gauss rule is the error estimate of the segment. The
+ * segment with the largest error is bisected until the total error is within
+ * the maximum error or the evaluation budget is spent, after at least
+ * MIN_BISECTIONS bisections so that a single 15-point estimate is never taken
+ * as converged. Infinite and semi-infinite ranges are mapped onto finite ones by
+ * a change of variable. An integral whose samples are all 0 is not converged:
+ * the mass of the function may lie between them.
+ * 
+ */
+public class GaussKronrod implements Integrator {
+
+	/**
+	 * Default maximum number of function evaluations per integral.
+	 */
+	public static final int DEFAULT_MAX_EVALUATIONS = 1 << 16;
+
+	// Kronrod nodes on [-1, 1], from the end points to the center (x = 0), and
+	// their weights. Odd indexes are also the nodes of the 7-point Gauss rule.
+	private static final double[] XGK = { 0.991455371120812639206854697526329, 0.949107912342758524526189684047851,
+			0.864864423359769072789712788640926, 0.741531185599394439863864773280788,
+			0.586087235467691130294144845693013, 0.405845151377397166906606412076961,
+			0.207784955007898467600689403773245, 0.000000000000000000000000000000000 };
+
+	private static final double[] WGK = { 0.022935322010529224963732008058970, 0.063092092629978553290700663189204,
+			0.104790010322250183839876322541518, 0.140653259715525918745189590510238,
+			0.169004726639267902826583426598550, 0.190350578064785409913256402421014,
+			0.204432940075298892414161999234649, 0.209482141084727828012999174891714 };
+
+	// Weights of the 7-point Gauss rule, for nodes XGK[1], XGK[3], XGK[5] and XGK[7]
+	private static final double[] WG = { 0.129484966168869693270611432679082, 0.279705391489276667901467771423780,
+			0.381830050505118944950369775488975, 0.417959183673469387755102040816327 };
+
+	private static final int POINTS = 15;
+
+	private static final int MIN_BISECTIONS = 2;
+
+	private static final int MIN_EVALUATIONS = POINTS * (1 + 2 * MIN_BISECTIONS);
+
+	private final int maxEvaluations;
+
+	public GaussKronrod() {
+		this(DEFAULT_MAX_EVALUATIONS);
+	}
+
+	public GaussKronrod(int maxEvaluations) {
+		if (maxEvaluations < MIN_EVALUATIONS)
+			throw new IllegalArgumentException("violates: maxEvaluations >= " + MIN_EVALUATIONS);
+		this.maxEvaluations = maxEvaluations;
+	}
+
+	public int getMaxEvaluations() {
+		return maxEvaluations;
+	}
+
+	/**
+	 * Infinite ranges are mapped around a center and scale found by probing the
+	 * function at exponentially spaced points (see Substitution.locate), which
+	 * count as evaluations. Functions whose mass is narrower than the spacing of
+	 * the probes may be missed, so pass the center and scale when they are known.
+	 */
+	@Override
+	public IntegrationResult integrate(Function func, double lower, double upper, double maxError) {
+		return integrate(func, lower, upper, maxError, Double.NaN, Double.NaN);
+	}
+
+	/**
+	 * @param center where the mass of the function lies, or NaN to locate it
+	 * @param scale how wide the mass of the function is, or NaN to locate it
+	 */
+	@Override
+	public IntegrationResult integrate(Function func, double lower, double upper, double maxError, double center,
+			double scale) {
+		if (!(lower <= upper))
+			throw new IllegalArgumentException("violates: lower <= upper");
+
+		if (maxError <= 0.0)
+			throw new IllegalArgumentException("violates: maxError > 0");
+
+		if (lower == upper)
+			return new IntegrationResult(0.0, 0.0, 0, 0, true);
+
+		IntegrationEvent event = IntegrationMetrics.begin();
+		IntegrationResult result;
+		if (Double.isInfinite(lower) || Double.isInfinite(upper)) {
+			boolean locate = Double.isNaN(center) || Double.isNaN(scale);
+			Substitution s = locate ? Substitution.locate(func, lower, upper)
+					: new Substitution(func, lower, upper, center, scale);
+			result = integrateFinite(s, s.getLower(), s.getUpper(), maxError);
+			if (locate)
+				result = new IntegrationResult(result.getValue(), result.getErrorEstimate(),
+						result.getEvaluations() + s.getProbes(), result.getRefinements(), result.isConverged());
+		} else {
+			result = integrateFinite(func, lower, upper, maxError);
+		}
+		IntegrationMetrics.end(event, "GaussKronrod", lower, upper, result);
+		return result;
+	}
+
+	private IntegrationResult integrateFinite(Function func, double lower, double upper, double maxError) {
+		double[] xs = new double[POINTS];
+		double[] ys = new double[POINTS];
+
+		// Segments ordered by decreasing error estimate
+		PriorityQueue<Segment> segments = new PriorityQueue<>((s1, s2) -> Double.compare(s2.error, s1.error));
+		Segment whole = integrateSegment(func, lower, upper, xs, ys);
+		segments.add(whole);
+		long evaluations = POINTS;
+		int bisections = 0;
+		double value = whole.value;
+		double error = whole.error;
+		boolean sampled = whole.sampled;
+
+		while ((error > maxError || bisections < MIN_BISECTIONS) && evaluations + 2 * POINTS <= maxEvaluations) {
+			Segment worst = segments.peek();
+			double mid = 0.5 * (worst.lower + worst.upper);
+			if (mid <= worst.lower || mid >= worst.upper)
+				break; // cannot be bisected any further in double precision
+
+			segments.poll();
+			Segment left = integrateSegment(func, worst.lower, mid, xs, ys);
+			Segment right = integrateSegment(func, mid, worst.upper, xs, ys);
+			segments.add(left);
+			segments.add(right);
+			evaluations += 2 * POINTS;
+			bisections++;
+			sampled |= left.sampled || right.sampled;
+
+			value += left.value + right.value - worst.value;
+			error += left.error + right.error - worst.error;
+		}
+
+		// Sum the segments again, so the running updates do not accumulate rounding errors
+		value = 0.0;
+		error = 0.0;
+		for (Segment s : segments) {
+			value += s.value;
+			error += s.error;
+		}
+		boolean converged = error <= maxError && bisections >= MIN_BISECTIONS && sampled;
+		return new IntegrationResult(value, error, evaluations, bisections, converged);
+	}
+
+	private static Segment integrateSegment(Function func, double lower, double upper, double[] xs, double[] ys) {
+		double center = 0.5 * (lower + upper);
+		double halfLength = 0.5 * (upper - lower);
+		for (int i = 0; i < 7; i++) {
+			xs[2 * i] = center - halfLength * XGK[i];
+			xs[2 * i + 1] = center + halfLength * XGK[i];
+		}
+		xs[14] = center;
+		func.evaluate(xs, ys);
+
+		double kronrod = WGK[7] * ys[14];
+		double magnitude = WGK[7] * Math.abs(ys[14]);
+		double gauss = WG[3] * ys[14];
+		for (int i = 0; i < 7; i++) {
+			double pair = ys[2 * i] + ys[2 * i + 1];
+			kronrod += WGK[i] * pair;
+			magnitude += WGK[i] * (Math.abs(ys[2 * i]) + Math.abs(ys[2 * i + 1]));
+			if ((i & 1) == 1)
+				gauss += WG[i / 2] * pair;
+		}
+		return new Segment(lower, upper, halfLength * kronrod, Math.abs(halfLength * (kronrod - gauss)),
+				halfLength * magnitude > 0);
+	}
+
+	private static final class Segment {
+
+		private final double lower;
+		private final double upper;
+		private final double value;
+		private final double error;
+		private final boolean sampled; // whether some sample contributes to the value
+
+		Segment(double lower, double upper, double value, double error, boolean sampled) {
+			this.lower = lower;
+			this.upper = upper;
+			this.value = value;
+			this.error = error;
+			this.sampled = sampled;
+		}
+	}
+
+}
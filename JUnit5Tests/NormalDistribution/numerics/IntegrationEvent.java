@@ -0,0 +1,40 @@
+package numerics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for one numerical integration, recorded while
+ * IntegrationMetrics is enabled.
+ * 
+ */
+@Name("numerics.Integration")
+@Label("Numerical Integration")
+@Category({ "JUnit5Tests", "Numerics" })
+@Description("Work done by an Integrator to integrate a function")
+class IntegrationEvent extends jdk.jfr.Event {
+
+	@Label("Method")
+	String method;
+
+	@Label("Lower Limit")
+	double lower;
+
+	@Label("Upper Limit")
+	double upper;
+
+	@Label("Function Evaluations")
+	long evaluations;
+
+	@Label("Refinements")
+	int refinements;
+
+	@Label("Error Estimate")
+	double errorEstimate;
+
+	@Label("Converged")
+	boolean converged;
+
+}
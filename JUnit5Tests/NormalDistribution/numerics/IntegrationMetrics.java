@@ -0,0 +1,172 @@
+package numerics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and histograms of the work done by the integrators, plus a
+ * numerics.Integration Flight Recorder event per integral (and a
+ * statistics.Probability event per probability of a NormalDistribution).
+ * Disabled by default; while disabled the integrators only pay for reading a
+ * flag.
+ * 
+ */
+public final class IntegrationMetrics {
+
+	private static volatile boolean enabled;
+
+	private static final LongAdder integrations = new LongAdder();
+	private static final LongAdder evaluations = new LongAdder();
+	private static final LongAdder refinements = new LongAdder();
+	private static final LongAdder unconverged = new LongAdder();
+	private static final Histogram evaluationsPerIntegral = new Histogram();
+	private static final Histogram refinementsPerIntegral = new Histogram();
+
+	private IntegrationMetrics() {
+	}
+
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	public static void setEnabled(boolean enabled) {
+		IntegrationMetrics.enabled = enabled;
+	}
+
+	/**
+	 * Sets all counters and histograms back to 0.
+	 */
+	public static void reset() {
+		integrations.reset();
+		evaluations.reset();
+		refinements.reset();
+		unconverged.reset();
+		evaluationsPerIntegral.reset();
+		refinementsPerIntegral.reset();
+	}
+
+	/**
+	 * @return the number of integrals calculated
+	 */
+	public static long getIntegrations() {
+		return integrations.sum();
+	}
+
+	/**
+	 * @return the total number of function evaluations
+	 */
+	public static long getEvaluations() {
+		return evaluations.sum();
+	}
+
+	/**
+	 * @return the total number of refinement steps (see IntegrationResult.getRefinements)
+	 */
+	public static long getRefinements() {
+		return refinements.sum();
+	}
+
+	/**
+	 * @return the number of integrals that ran out of evaluation budget
+	 */
+	public static long getUnconverged() {
+		return unconverged.sum();
+	}
+
+	public static Histogram getEvaluationsPerIntegral() {
+		return evaluationsPerIntegral;
+	}
+
+	public static Histogram getRefinementsPerIntegral() {
+		return refinementsPerIntegral;
+	}
+
+	/**
+	 * @return a started event if the metrics are enabled, null otherwise
+	 */
+	static IntegrationEvent begin() {
+		if (!enabled)
+			return null;
+		IntegrationEvent event = new IntegrationEvent();
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * Records an integral started with begin; does nothing if event is null.
+	 */
+	static void end(IntegrationEvent event, String method, double lower, double upper, IntegrationResult result) {
+		if (event == null)
+			return;
+		integrations.increment();
+		evaluations.add(result.getEvaluations());
+		refinements.add(result.getRefinements());
+		if (!result.isConverged())
+			unconverged.increment();
+		evaluationsPerIntegral.record(result.getEvaluations());
+		refinementsPerIntegral.record(result.getRefinements());
+
+		event.end();
+		if (event.shouldCommit()) {
+			event.method = method;
+			event.lower = lower;
+			event.upper = upper;
+			event.evaluations = result.getEvaluations();
+			event.refinements = result.getRefinements();
+			event.errorEstimate = result.getErrorEstimate();
+			event.converged = result.isConverged();
+			event.commit();
+		}
+	}
+
+	/**
+	 * Histogram of non-negative values, with power of two buckets: bucket 0
+	 * counts the zeros and bucket b > 0 the values in [2^(b-1), 2^b).
+	 */
+	public static final class Histogram {
+
+		private final AtomicLongArray buckets = new AtomicLongArray(64);
+		private final LongAdder count = new LongAdder();
+		private final LongAdder sum = new LongAdder();
+		private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+		void record(long value) {
+			buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(value));
+			count.increment();
+			sum.add(value);
+			max.accumulate(value);
+		}
+
+		void reset() {
+			for (int i = 0; i < buckets.length(); i++)
+				buckets.set(i, 0);
+			count.reset();
+			sum.reset();
+			max.reset();
+		}
+
+		public long getCount() {
+			return count.sum();
+		}
+
+		public double getMean() {
+			long n = count.sum();
+			return n == 0 ? Double.NaN : (double) sum.sum() / n;
+		}
+
+		public long getMax() {
+			return max.get();
+		}
+
+		public long getBucketCount(int bucket) {
+			return buckets.get(bucket);
+		}
+
+		@Override
+		public String toString() {
+			return "count=" + getCount() + ", mean=" + getMean() + ", max=" + getMax();
+		}
+	}
+
+}
@@ -0,0 +1,67 @@
+package numerics;
+
+/**
+ * Value of a numerical integral, as computed by an Integrator, along with the
+ * error estimate and the work needed to compute it.
+ * 
+ */
+public final class IntegrationResult {
+
+	private final double value;
+	private final double errorEstimate;
+	private final long evaluations;
+	private final int refinements;
+	private final boolean converged;
+
+	public IntegrationResult(double value, double errorEstimate, long evaluations, int refinements, boolean converged) {
+		this.value = value;
+		this.errorEstimate = errorEstimate;
+		this.evaluations = evaluations;
+		this.refinements = refinements;
+		this.converged = converged;
+	}
+
+	/**
+	 * @return the approximate value of the integral
+	 */
+	public double getValue() {
+		return value;
+	}
+
+	/**
+	 * @return the estimated absolute error of the value
+	 */
+	public double getErrorEstimate() {
+		return errorEstimate;
+	}
+
+	/**
+	 * @return the number of function evaluations used
+	 */
+	public long getEvaluations() {
+		return evaluations;
+	}
+
+	/**
+	 * @return the number of refinement steps after the initial estimate (grid
+	 *         doublings, segment bisections or levels, depending on the method)
+	 */
+	public int getRefinements() {
+		return refinements;
+	}
+
+	/**
+	 * @return false if the evaluation budget was spent before the error estimate
+	 *         reached the requested maximum error
+	 */
+	public boolean isConverged() {
+		return converged;
+	}
+
+	@Override
+	public String toString() {
+		return value + " +- " + errorEstimate + " (" + evaluations + " evaluations, " + refinements + " refinements"
+				+ (converged ? ")" : ", not converged)");
+	}
+
+}
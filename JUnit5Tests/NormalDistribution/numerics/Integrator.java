@@ -0,0 +1,33 @@
+package numerics;
+
+/**
+ * Interface to be implemented by numerical integration methods.
+ * 
+ */
+public interface Integrator {
+
+	/**
+	 * Calculates an approximate value of the integral of a given function, between
+	 * the given lower and upper limits, refining it until the error estimate is
+	 * within maxError or the evaluation budget of the method is spent.
+	 * 
+	 * @param func function to integrate
+	 * @param lower lower limit, may be Double.NEGATIVE_INFINITY if the method supports it
+	 * @param upper upper limit, may be Double.POSITIVE_INFINITY if the method supports it
+	 * @param maxError maximum error allowed
+	 * @return the approximate integral, its error estimate and the number of
+	 *         function evaluations used
+	 */
+	IntegrationResult integrate(Function func, double lower, double upper, double maxError);
+
+	/**
+	 * Same as integrate(func, lower, upper, maxError), for a function whose mass
+	 * lies within a few times scale of center. Methods that map infinite ranges
+	 * onto finite ones place the mapping there; the others ignore them.
+	 */
+	default IntegrationResult integrate(Function func, double lower, double upper, double maxError, double center,
+			double scale) {
+		return integrate(func, lower, upper, maxError);
+	}
+
+}
@@ -1,69 +1,302 @@
 package numerics;
 
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * Class that implements the Simpson's method for numerical integration.
  * 
  */
-public class SimpsonMethod {
+public class SimpsonMethod implements Integrator {
+
+	/**
+	 * Default maximum number of function evaluations per integral. The static
+	 * methods throw an ArithmeticException when they would need more.
+	 */
+	public static final int DEFAULT_MAX_EVALUATIONS = 1 << 26;
+
+	/**
+	 * Minimum number of new grid points from which the parallel mode splits
+	 * their sum over the common ForkJoin pool. Coarser grids are summed serially.
+	 */
+	public static final int PARALLEL_THRESHOLD = 1 << 14;
+
+	/**
+	 * Number of grid points summed by a single ForkJoin task.
+	 */
+	private static final int LEAF_SIZE = 1 << 12;
+
+	/**
+	 * Number of grid points evaluated per call to Function.evaluate(double[], double[]).
+	 */
+	private static final int BLOCK_SIZE = 1 << 10;
+
+	private final int maxEvaluations;
+	private final boolean parallel;
+
+	public SimpsonMethod() {
+		this(DEFAULT_MAX_EVALUATIONS, false);
+	}
+
+	/**
+	 * @param maxEvaluations maximum number of function evaluations per integral
+	 * @param parallel whether to sum fine grids in parallel, see calcIntegralParallel
+	 */
+	public SimpsonMethod(int maxEvaluations, boolean parallel) {
+		if (maxEvaluations <= 0)
+			throw new IllegalArgumentException("violates: maxEvaluations > 0");
+		this.maxEvaluations = maxEvaluations;
+		this.parallel = parallel;
+	}
+
+	public int getMaxEvaluations() {
+		return maxEvaluations;
+	}
+
+	/**
+	 * Calculates the integral by the Simpson's method. The error estimate is the
+	 * difference between the last two refinements. Infinite limits are not
+	 * supported.
+	 */
+	@Override
+	public IntegrationResult integrate(Function func, double lower, double upper, double maxError) {
+		return calcIntegral(func, lower, upper, maxError, parallel, maxEvaluations);
+	}
 
 	/**
 	 * Calculates an approximate value of the integral of a given function, between
 	 * the given lower and upper limits, within a specified maximum error, by the
 	 * Simpson's method.
+	 * 
+	 * @throws ArithmeticException if the maximum error is not reached within
+	 *         DEFAULT_MAX_EVALUATIONS function evaluations
 	 */
 	public static double calcIntegral(Function func, double lower, double upper, double maxError){
+		return converged(calcIntegral(func, lower, upper, maxError, false, DEFAULT_MAX_EVALUATIONS));
+	}
+
+	/**
+	 * Same as calcIntegral, but the function values of each refinement with at
+	 * least PARALLEL_THRESHOLD new points are summed in parallel. Partial sums are
+	 * compensated and combined in a fixed order, so the result does not depend
+	 * on thread scheduling.
+	 */
+	public static double calcIntegralParallel(Function func, double lower, double upper, double maxError){
+		return converged(calcIntegral(func, lower, upper, maxError, true, DEFAULT_MAX_EVALUATIONS));
+	}
+
+	/**
+	 * Calculates the integrals of a function over the intervals [lower[i], upper[i]].
+	 * The intervals are split at each other's limits and each piece is integrated
+	 * once, so that overlapping intervals share the function values instead of
+	 * evaluating them again. Each piece gets a share of maxError proportional to
+	 * its length, so that the error of every interval stays within maxError.
+	 */
+	public static double[] calcIntegrals(Function func, double[] lower, double[] upper, double maxError){
+		if (lower.length != upper.length)
+			throw new IllegalArgumentException("violates: lower.length == upper.length");
+		
+		if (maxError <= 0.0)
+			throw new IllegalArgumentException("violates: maxError > 0");
+
+		// Limits of the pieces: the distinct limits of the intervals, in order
+		// (adding 0.0 turns -0.0 into 0.0, which binarySearch tells apart)
+		double[] limits = new double[2 * lower.length];
+		for (int i = 0; i < lower.length; i++) {
+			if (lower[i] > upper[i])
+				throw new IllegalArgumentException("violates: lower <= upper");
+			if (Double.isInfinite(lower[i]) || Double.isInfinite(upper[i]))
+				throw new IllegalArgumentException("violates: finite lower and upper");
+			limits[2 * i] = lower[i] + 0.0;
+			limits[2 * i + 1] = upper[i] + 0.0;
+		}
+		Arrays.sort(limits);
+		int count = 0;
+		for (double limit : limits)
+			if (count == 0 || limit != limits[count - 1])
+				limits[count++] = limit;
+
+		// Number of intervals covering each piece [limits[j], limits[j + 1]],
+		// and their total length
+		int[] coverage = new int[count];
+		for (int i = 0; i < lower.length; i++) {
+			coverage[Arrays.binarySearch(limits, 0, count, lower[i] + 0.0)]++;
+			coverage[Arrays.binarySearch(limits, 0, count, upper[i] + 0.0)]--;
+		}
+		double covered = 0.0;
+		for (int j = 0; j + 1 < count; j++) {
+			if (j > 0)
+				coverage[j] += coverage[j - 1];
+			if (coverage[j] > 0)
+				covered += limits[j + 1] - limits[j];
+		}
+
+		// cumulative[j] is the integral from limits[0] to limits[j], over the
+		// covered pieces only
+		double[] cumulative = new double[count];
+		for (int j = 0; j + 1 < count; j++) {
+			cumulative[j + 1] = cumulative[j];
+			// A piece's share of the error is its share of the length, at least
+			// MIN_NORMAL so that it does not underflow to 0 for tiny pieces
+			if (coverage[j] > 0)
+				cumulative[j + 1] += calcIntegral(func, limits[j], limits[j + 1],
+						Math.max(maxError * ((limits[j + 1] - limits[j]) / covered), Double.MIN_NORMAL));
+		}
+
+		double[] integrals = new double[lower.length];
+		for (int i = 0; i < integrals.length; i++)
+			integrals[i] = cumulative[Arrays.binarySearch(limits, 0, count, upper[i] + 0.0)]
+					- cumulative[Arrays.binarySearch(limits, 0, count, lower[i] + 0.0)];
+		return integrals;
+	}
+
+	private static double converged(IntegrationResult result) {
+		if (!result.isConverged())
+			throw new ArithmeticException("no convergence within " + result.getEvaluations() + " evaluations");
+		return result.getValue();
+	}
+
+	private static IntegrationResult calcIntegral(Function func, double lower, double upper, double maxError, boolean parallel, long maxEvaluations){
 		// work parameters
-		int n = 10;  // number of segments, initially 10 (hard-coded)
-		double g1;   // approximate integral value for n segments
-		double g2;   // approximate integral value for 2*n segments
+		long n = 10;  // number of segments, initially 10 (hard-coded)
+		double g1;    // approximate integral value for n segments
+		double g2;    // approximate integral value for 2*n segments
+		long evaluations;
 		
 		if (lower > upper)
 			throw new IllegalArgumentException("violates: lower <= upper");
 		
+		if (Double.isInfinite(lower) || Double.isInfinite(upper))
+			throw new IllegalArgumentException("violates: finite lower and upper");
+		
 		if (maxError <= 0.0)
 			throw new IllegalArgumentException("violates: maxError > 0");		
 
-		// Compute an approximate integral (g1) value with the previous method and n segments
-		g1 = calcIntegralWithNumSegments(func, lower, upper, n);
+		IntegrationEvent event = IntegrationMetrics.begin();
+
+		// Simpson's formula for n segments is width/3 * (f(lower) + 4*oddSum + 2*evenSum + f(upper)).
+		// The odd points are the midpoints of the previous grid, and the even points
+		// all of its interior points: doubling n turns the odd points into even ones,
+		// so each refinement only evaluates the n new midpoints.
+		double ends = func.evaluate(lower) + func.evaluate(upper);
+		double evenSum = sumPoints(func, lower, (upper - lower) / n, 2, (int) n / 2 - 1, parallel);
+		double oddSum = sumPoints(func, lower, (upper - lower) / n, 1, (int) n / 2, parallel);
+		g1 = (upper - lower) / n / 3 * (ends + 4 * oddSum + 2 * evenSum);
+		evaluations = n + 1;
 
-		// Repeat until an acceptable approximation is found
-		while(true) {
-			g2 = calcIntegralWithNumSegments(func, lower, upper, 2*n);
+		// Repeat until an acceptable approximation is found, or the next
+		// refinement would exceed the evaluation budget
+		double error = Double.POSITIVE_INFINITY;
+		int doublings = 0;
+		while(evaluations + n <= maxEvaluations) {
+			evenSum += oddSum;
+			oddSum = sumPoints(func, lower, (upper - lower) / (2*n), 1, (int) n, parallel);
+			evaluations += n;
+			n *= 2;
+			g2 = (upper - lower) / n / 3 * (ends + 4 * oddSum + 2 * evenSum);
+			doublings++;
+			error = Math.abs(g2 - g1);
 		
-			if (Math.abs(g2 - g1) <= maxError)
-				return g2;
+			if (error <= maxError)
+				return record(event, lower, upper, new IntegrationResult(g2, error, evaluations, doublings, true));
 		
 			g1 = g2;
-			n *= 2;
 		}
+		return record(event, lower, upper, new IntegrationResult(g1, error, evaluations, doublings, false));
 	}
-	
+
+	private static IntegrationResult record(IntegrationEvent event, double lower, double upper, IntegrationResult result) {
+		IntegrationMetrics.end(event, "SimpsonMethod", lower, upper, result);
+		return result;
+	}
+
 	/**
 	 * Auxiliary method.
-	 * Calculates an approximate value of the integral of the function given, between
-	 * the given lower and upper limits, using a specified number of segments, by the
-	 * Simpson's formula.
+	 * Sums the function values at every other grid point lower + (first + 2*k) * width,
+	 * for k = 0, ..., count - 1.
 	 */
-	private static double calcIntegralWithNumSegments(Function func, double lower, double upper, int numSegments){
-		// Declare work parameters: width, oddSum, evenSum
-		double width;
-		double oddSum = 0.0, evenSum = 0.0;
-		
-		// Compute the segment with
-		width = (upper - lower) / numSegments;
-		
-		// Sum up the function values for odd segments (1, ..., numSegments - 1),
-		// and compute oddSum
-		for ( int i = 1; i <= numSegments - 1; i += 2)
-			oddSum += func.evaluate(lower + i * width);
-		
-		// Sum up the function values for even segments (2, ..., numSegments - 2),
-		// and compute evenSum
-		for ( int i = 2; i <= numSegments - 2; i += 2)
-			evenSum += func.evaluate(lower + i * width);
-		
-		// Compute and return the final result			
-		return width / 3 * (func.evaluate(lower) + 4 * oddSum + 2 * evenSum + func.evaluate(upper)); 
+	private static double sumPoints(Function func, double lower, double width, long first, int count, boolean parallel){
+		if (parallel && count >= PARALLEL_THRESHOLD) {
+			double[] sum = ForkJoinPool.commonPool().invoke(new PointSum(func, lower, width, first, 0, count));
+			return sum[0] + sum[1];
+		}
+
+		// Evaluate the function over the points in blocks, so that each block is
+		// built and evaluated in bulk
+		double sum = 0.0;
+		double[] xs = new double[Math.min(BLOCK_SIZE, Math.max(count, 0))];
+		double[] ys = new double[xs.length];
+		for (int from = 0; from < count; from += BLOCK_SIZE) {
+			int length = Math.min(BLOCK_SIZE, count - from);
+			if (length < xs.length) {
+				xs = new double[length];
+				ys = new double[length];
+			}
+			for (int k = 0; k < length; k++)
+				xs[k] = lower + (first + 2L * (from + k)) * width;
+			func.evaluate(xs, ys);
+			for (int k = 0; k < length; k++)
+				sum += ys[k];
+		}
+		return sum;
+	}
+
+	/**
+	 * Sum of the function values at the grid points lower + (first + 2*k) * width,
+	 * for k = from, ..., to - 1, returned as a {sum, compensation} pair of a
+	 * Neumaier (improved Kahan) summation.
+	 */
+	private static final class PointSum extends RecursiveTask<double[]> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Function func;
+		private final double lower;
+		private final double width;
+		private final long first;
+		private final int from;
+		private final int to;
+
+		PointSum(Function func, double lower, double width, long first, int from, int to) {
+			this.func = func;
+			this.lower = lower;
+			this.width = width;
+			this.first = first;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected double[] compute() {
+			if (to - from <= LEAF_SIZE) {
+				double[] xs = new double[to - from];
+				double[] ys = new double[to - from];
+				for (int k = 0; k < xs.length; k++)
+					xs[k] = lower + (first + 2L * (from + k)) * width;
+				func.evaluate(xs, ys);
+
+				double sum = 0.0, compensation = 0.0;
+				for (int k = 0; k < ys.length; k++) {
+					double term = ys[k];
+					double t = sum + term;
+					compensation += Math.abs(sum) >= Math.abs(term) ? (sum - t) + term : (term - t) + sum;
+					sum = t;
+				}
+				return new double[] { sum, compensation };
+			}
+
+			// The split point only depends on the range, which keeps the
+			// summation order (and therefore the result) deterministic
+			int mid = (from + to) >>> 1;
+			PointSum left = new PointSum(func, lower, width, first, from, mid);
+			left.fork();
+			double[] r = new PointSum(func, lower, width, first, mid, to).compute();
+			double[] l = left.join();
+
+			double t = l[0] + r[0];
+			double error = Math.abs(l[0]) >= Math.abs(r[0]) ? (l[0] - t) + r[0] : (r[0] - t) + l[0];
+			return new double[] { t, l[1] + r[1] + error };
+		}
 	}
-}
\ No newline at end of file
+}
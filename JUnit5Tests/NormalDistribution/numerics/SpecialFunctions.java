@@ -0,0 +1,255 @@
+package numerics;
+
+/**
+ * Class that implements the special functions needed by closed form
+ * probability distributions: the logarithm of the gamma function, the
+ * regularized incomplete gamma and beta functions (series and continued
+ * fraction expansions, and quadrature for large shapes) and the error function.
+ * 
+ */
+public final class SpecialFunctions {
+
+	private static final double EPSILON = 1e-15;
+	private static final double FPMIN = Double.MIN_NORMAL / EPSILON;
+	private static final int MAX_ITERATIONS = 10_000;
+
+	/**
+	 * Shape from which the incomplete gamma function is calculated by
+	 * quadrature. The series and continued fraction need O(sqrt(a)) terms near
+	 * x = a, too many for large shapes.
+	 */
+	private static final double LARGE_SHAPE = 100;
+
+	// Nodes on [0, 1] and weights of the lower half of the 36-point Gauss-Legendre
+	// rule on [0, 2], for the integrand of the incomplete gamma function
+	private static final double[] GAUSS_NODES = { 0.0021695375159141994, 0.011413521097787704,
+			0.027972308950302116, 0.051727015600492421, 0.082502225484340941, 0.12007019910960293,
+			0.16415283300752470, 0.21442376986779355, 0.27051082840644336, 0.33199876341447887,
+			0.39843234186401943, 0.46931971407375483, 0.54413605556657973, 0.62232745288031077,
+			0.70331500465597174, 0.78649910768313447, 0.87126389619061517, 0.95698180152629142 };
+	private static final double[] GAUSS_WEIGHTS = { 0.0055657196642445571, 0.012915947284065419,
+			0.020181515297735382, 0.027298621498568734, 0.034213810770299537, 0.040875750923643261,
+			0.047235083490265582, 0.053244713977759692, 0.058860144245324798, 0.064039797355015485,
+			0.068745323835736408, 0.072941885005653087, 0.076598410645870640, 0.079687828912071670,
+			0.082187266704339706, 0.084078218979661945, 0.085346685739338721, 0.085983275670394821 };
+
+	// Lanczos approximation coefficients, g = 7, n = 9
+	private static final double LANCZOS_G = 7;
+	private static final double[] LANCZOS = { 0.99999999999980993, 676.5203681218851, -1259.1392167224028,
+			771.32342877765313, -176.61502916214059, 12.507343278686905, -0.13857109526572012, 9.9843695780195716e-6,
+			1.5056327351493116e-7 };
+
+	private SpecialFunctions() {
+	}
+
+	/**
+	 * Calculates the natural logarithm of the gamma function, by the Lanczos
+	 * approximation.
+	 * 
+	 * @param x argument, x > 0
+	 */
+	public static double logGamma(double x) {
+		if (!(x > 0))
+			throw new IllegalArgumentException("violates: x > 0");
+		if (x < 0.5)
+			// reflection formula, more accurate near 0
+			return Math.log(Math.PI / Math.sin(Math.PI * x)) - logGamma(1 - x);
+
+		x -= 1;
+		double a = LANCZOS[0];
+		for (int i = 1; i < LANCZOS.length; i++)
+			a += LANCZOS[i] / (x + i);
+		double t = x + LANCZOS_G + 0.5;
+		return 0.5 * Math.log(2 * Math.PI) + (x + 0.5) * Math.log(t) - t + Math.log(a);
+	}
+
+	/**
+	 * Calculates the regularized lower incomplete gamma function P(a, x).
+	 * 
+	 * @param a shape, a > 0
+	 * @param x upper limit, x >= 0
+	 */
+	public static double regularizedGammaP(double a, double x) {
+		checkGammaArguments(a, x);
+		if (x == 0)
+			return 0.0;
+		if (Double.isInfinite(x))
+			return 1.0;
+		if (a >= LARGE_SHAPE) {
+			double q = gammaQuadrature(a, x);
+			return q >= 0 ? 1.0 - q : -q;
+		}
+		return x < a + 1 ? gammaSeries(a, x) : 1.0 - gammaContinuedFraction(a, x);
+	}
+
+	/**
+	 * Calculates the regularized upper incomplete gamma function Q(a, x) = 1 - P(a, x).
+	 * 
+	 * @param a shape, a > 0
+	 * @param x lower limit, x >= 0
+	 */
+	public static double regularizedGammaQ(double a, double x) {
+		checkGammaArguments(a, x);
+		if (x == 0)
+			return 1.0;
+		if (Double.isInfinite(x))
+			return 0.0;
+		if (a >= LARGE_SHAPE) {
+			double q = gammaQuadrature(a, x);
+			return q >= 0 ? q : 1.0 + q;
+		}
+		return x < a + 1 ? 1.0 - gammaSeries(a, x) : gammaContinuedFraction(a, x);
+	}
+
+	/**
+	 * Calculates the regularized incomplete beta function I_x(a, b).
+	 * 
+	 * @param x upper limit, 0 <= x <= 1
+	 * @param a a > 0
+	 * @param b b > 0
+	 */
+	public static double regularizedBeta(double x, double a, double b) {
+		if (!(x >= 0 && x <= 1))
+			throw new IllegalArgumentException("violates: 0 <= x <= 1");
+		if (!(a > 0) || !(b > 0))
+			throw new IllegalArgumentException("violates: a > 0 and b > 0");
+		if (x == 0 || x == 1)
+			return x;
+
+		double front = Math.exp(logGamma(a + b) - logGamma(a) - logGamma(b) + a * Math.log(x) + b * Math.log1p(-x));
+		// The continued fraction converges fast for x < (a + 1) / (a + b + 2),
+		// otherwise use the symmetry I_x(a, b) = 1 - I_(1-x)(b, a)
+		if (x < (a + 1) / (a + b + 2))
+			return front * betaContinuedFraction(x, a, b) / a;
+		return 1.0 - front * betaContinuedFraction(1 - x, b, a) / b;
+	}
+
+	/**
+	 * Calculates the error function erf(x).
+	 */
+	public static double erf(double x) {
+		double p = regularizedGammaP(0.5, x * x);
+		return x < 0 ? -p : p;
+	}
+
+	/**
+	 * Calculates the complementary error function erfc(x) = 1 - erf(x), without
+	 * losing precision for large x.
+	 */
+	public static double erfc(double x) {
+		return x < 0 ? 1.0 + regularizedGammaP(0.5, x * x) : regularizedGammaQ(0.5, x * x);
+	}
+
+	private static void checkGammaArguments(double a, double x) {
+		if (!(a > 0))
+			throw new IllegalArgumentException("violates: a > 0");
+		if (!(x >= 0))
+			throw new IllegalArgumentException("violates: x >= 0");
+	}
+
+	/**
+	 * P(a, x) by its series expansion, for x < a + 1.
+	 */
+	private static double gammaSeries(double a, double x) {
+		double term = 1.0 / a, sum = term;
+		for (int n = 1; n <= MAX_ITERATIONS; n++) {
+			term *= x / (a + n);
+			sum += term;
+			if (Math.abs(term) < Math.abs(sum) * EPSILON)
+				return sum * Math.exp(-x + a * Math.log(x) - logGamma(a));
+		}
+		throw new ArithmeticException("no convergence for P(" + a + ", " + x + ")");
+	}
+
+	/**
+	 * Q(a, x) by its continued fraction (modified Lentz's method), for x >= a + 1.
+	 */
+	private static double gammaContinuedFraction(double a, double x) {
+		double b = x + 1 - a;
+		double c = 1.0 / FPMIN;
+		double d = 1.0 / b;
+		double h = d;
+		for (int i = 1; i <= MAX_ITERATIONS; i++) {
+			double an = -i * (i - a);
+			b += 2;
+			d = an * d + b;
+			if (Math.abs(d) < FPMIN)
+				d = FPMIN;
+			c = b + an / c;
+			if (Math.abs(c) < FPMIN)
+				c = FPMIN;
+			d = 1.0 / d;
+			double delta = d * c;
+			h *= delta;
+			if (Math.abs(delta - 1.0) < EPSILON)
+				return Math.exp(-x + a * Math.log(x) - logGamma(a)) * h;
+		}
+		throw new ArithmeticException("no convergence for Q(" + a + ", " + x + ")");
+	}
+
+	/**
+	 * Incomplete gamma function by Gauss-Legendre quadrature, for a >= LARGE_SHAPE
+	 * (Numerical Recipes, gammpapprox). The integrand t^(a-1) e^-t, relative to its
+	 * peak at a - 1, is negligible more than about 10 standard deviations sqrt(a - 1)
+	 * away, so the integral from x towards the far side of the peak is cut there.
+	 * 
+	 * @return Q(a, x) if x > a - 1, otherwise -P(a, x)
+	 */
+	private static double gammaQuadrature(double a, double x) {
+		double a1 = a - 1, sqrtA1 = Math.sqrt(a1);
+		double end = x > a1 ? Math.max(a1 + 11.5 * sqrtA1, x + 6 * sqrtA1)
+				: Math.max(0, Math.min(a1 - 7.5 * sqrtA1, x - 5 * sqrtA1));
+		double sum = 0;
+		for (int i = 0; i < GAUSS_NODES.length; i++) {
+			double d = (end - x) * GAUSS_NODES[i] + (x - a1); // t - (a - 1)
+			sum += GAUSS_WEIGHTS[i] * Math.exp(a1 * Math.log1p(d / a1) - d);
+		}
+		// The integrand is relative to its peak (a - 1)^(a - 1) e^-(a - 1), which over
+		// gamma(a) is 1 / sqrt(2 pi (a - 1)) by Stirling's series, without the
+		// cancellation of logGamma(a) against a number as large
+		double n = a1, n2 = n * n;
+		double correction = (1.0 / 12 - (1.0 / 360 - 1.0 / (1260 * n2)) / n2) / n;
+		return sum * (end - x) * Math.exp(-correction) / Math.sqrt(2 * Math.PI * n);
+	}
+
+	/**
+	 * Continued fraction of the incomplete beta function (modified Lentz's method).
+	 */
+	private static double betaContinuedFraction(double x, double a, double b) {
+		double qab = a + b, qap = a + 1, qam = a - 1;
+		double c = 1.0;
+		double d = 1.0 - qab * x / qap;
+		if (Math.abs(d) < FPMIN)
+			d = FPMIN;
+		d = 1.0 / d;
+		double h = d;
+		for (int m = 1; m <= MAX_ITERATIONS; m++) {
+			int m2 = 2 * m;
+			// even step
+			double aa = m * (b - m) * x / ((qam + m2) * (a + m2));
+			d = 1.0 + aa * d;
+			if (Math.abs(d) < FPMIN)
+				d = FPMIN;
+			c = 1.0 + aa / c;
+			if (Math.abs(c) < FPMIN)
+				c = FPMIN;
+			d = 1.0 / d;
+			h *= d * c;
+			// odd step
+			aa = -(a + m) * (qab + m) * x / ((a + m2) * (qap + m2));
+			d = 1.0 + aa * d;
+			if (Math.abs(d) < FPMIN)
+				d = FPMIN;
+			c = 1.0 + aa / c;
+			if (Math.abs(c) < FPMIN)
+				c = FPMIN;
+			d = 1.0 / d;
+			double delta = d * c;
+			h *= delta;
+			if (Math.abs(delta - 1.0) < EPSILON)
+				return h;
+		}
+		throw new ArithmeticException("no convergence for I_" + x + "(" + a + ", " + b + ")");
+	}
+
+}
@@ -0,0 +1,204 @@
+package numerics;
+
+/**
+ * Change of variable that turns an integral over an infinite or semi-infinite
+ * range into one over a finite range: x = center + scale * t / (1 - t^2), with t
+ * in (-1, 1) for (-inf, inf), in [t(a), 1) for [a, inf) and in (-1, t(b)] for
+ * (-inf, b], where t(x) is the inverse of the change of variable. The center
+ * and scale should be where the mass of the integrand is and how wide it is,
+ * so that the finite range samples it evenly.
+ * The integrand is multiplied by dx/dt, and taken as 0 at the open ends of the
+ * finite range, where x would be infinite.
+ * 
+ */
+final class Substitution implements Function {
+
+	private final Function func;
+	private final double center;
+	private final double scale;
+	private final double lower;
+	private final double upper;
+	private int probes;
+
+	Substitution(Function func, double lower, double upper, double center, double scale) {
+		if (!Double.isInfinite(lower) && !Double.isInfinite(upper))
+			throw new IllegalArgumentException("violates: infinite lower or upper");
+		if (Double.isInfinite(center) || Double.isNaN(center))
+			throw new IllegalArgumentException("violates: finite center");
+		if (!(scale > 0) || Double.isInfinite(scale))
+			throw new IllegalArgumentException("violates: finite scale > 0");
+		this.func = func;
+		this.center = center;
+		this.scale = scale;
+		this.lower = inverse(lower);
+		this.upper = inverse(upper);
+	}
+
+	/**
+	 * Number of points per octave of distance at which locate evaluates the
+	 * function, and number of octaves (distances 2^-8 to 2^56).
+	 */
+	private static final int PROBES_PER_OCTAVE = 4, OCTAVES = 64;
+
+	/**
+	 * Number of points, and maximum number of rounds, of the finer grids on
+	 * which locate looks for functions narrower than the spacing of the probes.
+	 */
+	private static final int ZOOM_POINTS = 15, MAX_ZOOMS = 16;
+
+	/**
+	 * Finds a center and scale for a function whose location is unknown. The
+	 * function is evaluated at the finite limit (0 if there is none) and at
+	 * exponentially spaced distances from it towards the infinite limits. The
+	 * center is near the point of largest contribution |f(x)| dx, searched on
+	 * finer grids while the function is 0 at the neighbouring probes, then
+	 * refined by a parabola through the logarithms of the function there and at the
+	 * neighbouring points, whose curvature gives the scale (both exact for a
+	 * normal density). If the function is 0 everywhere, the center is the
+	 * starting point and the scale 1.
+	 * 
+	 * @return the substitution; the function was evaluated getProbes() times
+	 */
+	static Substitution locate(Function func, double lower, double upper) {
+		double start = !Double.isInfinite(lower) ? lower : Double.isInfinite(upper) ? 0.0 : upper;
+		int side = PROBES_PER_OCTAVE * OCTAVES;
+		int below = Double.isInfinite(lower) ? side : 0, above = Double.isInfinite(upper) ? side : 0;
+		// Probes in increasing order
+		double[] xs = new double[below + 1 + above];
+		for (int k = 0; k < side; k++) {
+			double distance = Math.pow(2, (double) k / PROBES_PER_OCTAVE - 8);
+			if (below > 0)
+				xs[below - 1 - k] = start - distance;
+			if (above > 0)
+				xs[below + 1 + k] = start + distance;
+		}
+		xs[below] = start;
+		double[] ys = new double[xs.length];
+		func.evaluate(xs, ys);
+
+		int best = -1;
+		double largest = 0;
+		for (int i = 0; i < xs.length; i++) {
+			double width = xs[Math.min(i + 1, xs.length - 1)] - xs[Math.max(i - 1, 0)];
+			if (Math.abs(ys[i]) * width > largest) {
+				largest = Math.abs(ys[i]) * width;
+				best = i;
+			}
+		}
+		if (best < 0) {
+			Substitution s = new Substitution(func, lower, upper, start, 1.0);
+			s.probes = xs.length;
+			return s;
+		}
+
+		// The best probe and its neighbours
+		int left = Math.max(best - 1, 0), right = Math.min(best + 1, xs.length - 1);
+		double x0 = xs[left], x1 = xs[best], x2 = xs[right];
+		double y0 = ys[left], y1 = ys[best], y2 = ys[right];
+		int probes = xs.length;
+
+		// While a neighbour is 0 (the function is narrower than the spacing),
+		// probe again on a finer, linear grid between the neighbours
+		double[] grid = new double[ZOOM_POINTS];
+		double[] values = new double[ZOOM_POINTS];
+		for (int zoom = 0; zoom < MAX_ZOOMS && (y0 == 0 || y2 == 0) && x0 < x1 && x1 < x2; zoom++) {
+			for (int i = 0; i < ZOOM_POINTS; i++)
+				grid[i] = x0 + (x2 - x0) * (i + 1) / (ZOOM_POINTS + 1);
+			func.evaluate(grid, values);
+			probes += ZOOM_POINTS;
+			int b = 0;
+			for (int i = 1; i < ZOOM_POINTS; i++)
+				if (Math.abs(values[i]) > Math.abs(values[b]))
+					b = i;
+			if (Math.abs(values[b]) > Math.abs(y1)) {
+				x1 = grid[b];
+				y1 = values[b];
+			}
+			// The new neighbours are the nearest points of the grid around the best one
+			for (int i = 0; i < ZOOM_POINTS; i++) {
+				if (grid[i] < x1) {
+					x0 = grid[i];
+					y0 = values[i];
+				} else if (grid[i] > x1) {
+					x2 = grid[i];
+					y2 = values[i];
+					break;
+				}
+			}
+		}
+
+		double center = x1, scale = 0.5 * (x2 - x0);
+		if (x0 < x1 && x1 < x2 && y0 != 0 && y2 != 0) {
+			double l0 = Math.log(Math.abs(y0)), l1 = Math.log(Math.abs(y1)), l2 = Math.log(Math.abs(y2));
+			double slope0 = (l1 - l0) / (x1 - x0), slope1 = (l2 - l1) / (x2 - x1);
+			double curvature = (slope1 - slope0) / (x2 - x0); // half the second derivative
+			if (curvature < 0) {
+				center = Math.min(x2, Math.max(x0, 0.5 * (x0 + x1) - slope0 / (2 * curvature)));
+				scale = Math.min(scale, 1 / Math.sqrt(-2 * curvature));
+			}
+		}
+		Substitution s = new Substitution(func, lower, upper, center, scale);
+		s.probes = probes;
+		return s;
+	}
+
+	/**
+	 * @return the number of function evaluations made by locate, 0 otherwise
+	 */
+	int getProbes() {
+		return probes;
+	}
+
+	/**
+	 * @return t such that x = center + scale * t / (1 - t^2), in [-1, 1]
+	 */
+	private double inverse(double x) {
+		if (Double.isInfinite(x))
+			return Math.signum(x);
+		// Root of u t^2 + t - u = 0 in (-1, 1), in a form that does not cancel out
+		double u = (x - center) / scale;
+		return 2 * u / (1 + Math.hypot(1, 2 * u));
+	}
+
+	/**
+	 * @return the lower limit of the finite range
+	 */
+	double getLower() {
+		return lower;
+	}
+
+	/**
+	 * @return the upper limit of the finite range
+	 */
+	double getUpper() {
+		return upper;
+	}
+
+	@Override
+	public double evaluate(double t) {
+		double[] out = new double[1];
+		evaluate(new double[] { t }, out);
+		return out[0];
+	}
+
+	@Override
+	public void evaluate(double[] ts, double[] out) {
+		double[] xs = new double[ts.length];
+		double[] jacobians = new double[ts.length];
+		for (int i = 0; i < ts.length; i++) {
+			double t = ts[i];
+			double d = 1 - t * t;
+			if (d == 0) {
+				// open end: evaluate anywhere finite, the zero jacobian discards it
+				xs[i] = center;
+				continue;
+			}
+			xs[i] = center + scale * t / d;
+			jacobians[i] = scale * (1 + t * t) / (d * d);
+		}
+		func.evaluate(xs, out);
+		for (int i = 0; i < ts.length; i++)
+			out[i] = jacobians[i] == 0 || out[i] == 0 ? 0 : out[i] * jacobians[i];
+	}
+
+}
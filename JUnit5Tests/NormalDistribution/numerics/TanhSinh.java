@@ -0,0 +1,208 @@
+package numerics;
+
+/**
+ * Class that implements the tanh-sinh (double exponential) method for numerical
+ * integration. The substitution x = tanh(pi/2 sinh(t)) makes the integrand decay
+ * double exponentially at both ends, so the trapezoidal rule in t converges very
+ * fast, even for integrands with end point singularities. The step in t is halved
+ * at each level, reusing the points of the previous levels, until two successive
+ * levels differ by no more than the maximum error or the evaluation budget is
+ * spent. Infinite and semi-infinite ranges are mapped onto finite ones by a
+ * change of variable, whose end point behaviour the method handles well. A
+ * level must also change the sum by less than half the magnitude of its samples:
+ * while all samples are 0, or each level keeps finding new mass, the mass of the
+ * function may lie between them.
+ * 
+ */
+public class TanhSinh implements Integrator {
+
+	/**
+	 * Default maximum number of function evaluations per integral.
+	 */
+	public static final int DEFAULT_MAX_EVALUATIONS = 1 << 14;
+
+	/**
+	 * Largest value of t that is ever used. The nodes get closer to the end
+	 * points than double precision can tell well before it, except at 0.
+	 */
+	private static final double MAX_T = 6.0;
+
+	private static final int MIN_LEVELS = 3;
+
+	private final int maxEvaluations;
+
+	public TanhSinh() {
+		this(DEFAULT_MAX_EVALUATIONS);
+	}
+
+	public TanhSinh(int maxEvaluations) {
+		if (maxEvaluations <= 0)
+			throw new IllegalArgumentException("violates: maxEvaluations > 0");
+		this.maxEvaluations = maxEvaluations;
+	}
+
+	public int getMaxEvaluations() {
+		return maxEvaluations;
+	}
+
+	/**
+	 * Infinite ranges are mapped around a center and scale found by probing the
+	 * function at exponentially spaced points (see Substitution.locate), which
+	 * count as evaluations. Functions whose mass is narrower than the spacing of
+	 * the probes may be missed, so pass the center and scale when they are known.
+	 */
+	@Override
+	public IntegrationResult integrate(Function func, double lower, double upper, double maxError) {
+		return integrate(func, lower, upper, maxError, Double.NaN, Double.NaN);
+	}
+
+	/**
+	 * @param center where the mass of the function lies, or NaN to locate it
+	 * @param scale how wide the mass of the function is, or NaN to locate it
+	 */
+	@Override
+	public IntegrationResult integrate(Function func, double lower, double upper, double maxError, double center,
+			double scale) {
+		if (!(lower <= upper))
+			throw new IllegalArgumentException("violates: lower <= upper");
+
+		if (maxError <= 0.0)
+			throw new IllegalArgumentException("violates: maxError > 0");
+
+		if (lower == upper)
+			return new IntegrationResult(0.0, 0.0, 0, 0, true);
+
+		IntegrationEvent event = IntegrationMetrics.begin();
+		IntegrationResult result;
+		if (Double.isInfinite(lower) || Double.isInfinite(upper)) {
+			boolean locate = Double.isNaN(center) || Double.isNaN(scale);
+			Substitution s = locate ? Substitution.locate(func, lower, upper)
+					: new Substitution(func, lower, upper, center, scale);
+			result = integrateFinite(s, s.getLower(), s.getUpper(), maxError);
+			if (locate)
+				result = new IntegrationResult(result.getValue(), result.getErrorEstimate(),
+						result.getEvaluations() + s.getProbes(), result.getRefinements(), result.isConverged());
+		} else {
+			result = integrateFinite(func, lower, upper, maxError);
+		}
+		IntegrationMetrics.end(event, "TanhSinh", lower, upper, result);
+		return result;
+	}
+
+	private IntegrationResult integrateFinite(Function func, double lower, double upper, double maxError) {
+		double center = 0.5 * (lower + upper);
+		double halfLength = 0.5 * (upper - lower);
+		// Each side is truncated on its own, so a side near 0 can get much
+		// closer to its end point than a side near 1
+		double tMaxLower = maxT(lower, halfLength, 1.0);
+		double tMaxUpper = maxT(upper, halfLength, -1.0);
+
+		// Level 0: step 1, points at t = 0, +-1, +-2, ...
+		double step = 1.0;
+		double[] sums = new double[2]; // weighted sum of the function values, and of their magnitudes
+		sumLevel(func, center, lower, upper, halfLength, 0.0, step, tMaxLower, tMaxUpper, sums);
+		long evaluations = countPoints(0.0, step, tMaxLower, tMaxUpper);
+		double previous = halfLength * step * sums[0];
+		double error = Double.POSITIVE_INFINITY;
+
+		for (int level = 1;; level++) {
+			// The new points of each level are the odd multiples of the halved step
+			double half = 0.5 * step;
+			long points = countPoints(half, step, tMaxLower, tMaxUpper);
+			if (evaluations + points > maxEvaluations)
+				return new IntegrationResult(previous, error, evaluations, level - 1, false);
+
+			sumLevel(func, center, lower, upper, halfLength, half, step, tMaxLower, tMaxUpper, sums);
+			evaluations += points;
+			step = half;
+
+			double current = halfLength * step * sums[0];
+			error = Math.abs(current - previous);
+			previous = current;
+			// A level that changes the sum by most of its magnitude has only found new mass
+			if (level >= MIN_LEVELS && error <= maxError && error < 0.5 * halfLength * step * sums[1])
+				return new IntegrationResult(current, error, evaluations, level, true);
+		}
+	}
+
+	/**
+	 * @return the number of points at t = first, first + step, ... up to tMax on
+	 *         each side (t = 0 is only counted once)
+	 */
+	private static int countPoints(double first, double step, double tMaxLower, double tMaxUpper) {
+		int lowerPoints = (int) Math.floor((tMaxLower - first) / step) + 1;
+		int upperPoints = (int) Math.floor((tMaxUpper - first) / step) + 1;
+		return first == 0.0 ? lowerPoints + upperPoints - 1 : lowerPoints + upperPoints;
+	}
+
+	/**
+	 * Adds the weighted function values at t = first, first + step, ... up to
+	 * tMaxUpper towards the upper limit, and up to tMaxLower towards the lower
+	 * one, to sums[0], and their magnitudes to sums[1].
+	 */
+	private static void sumLevel(Function func, double center, double lower, double upper, double halfLength,
+			double first, double step, double tMaxLower, double tMaxUpper, double[] sums) {
+		int points = countPoints(first, step, tMaxLower, tMaxUpper);
+		double[] xs = new double[points];
+		double[] ws = new double[points];
+		int p = 0;
+		for (int k = 0; p < points; k++) {
+			double t = first + k * step;
+			double weight = weight(t);
+			if (t == 0.0) {
+				xs[p] = center;
+				ws[p++] = weight;
+				continue;
+			}
+			double distance = distance(t, halfLength);
+			if (t <= tMaxUpper) {
+				xs[p] = upper - distance;
+				ws[p++] = weight;
+			}
+			if (t <= tMaxLower) {
+				xs[p] = lower + distance;
+				ws[p++] = weight;
+			}
+		}
+		double[] ys = new double[points];
+		func.evaluate(xs, ys);
+
+		for (int i = 0; i < points; i++) {
+			sums[0] += ws[i] * ys[i];
+			sums[1] += Math.abs(ws[i] * ys[i]);
+		}
+	}
+
+	/**
+	 * @return the weight of the node at t, that is d/dt tanh(pi/2 sinh(t))
+	 */
+	private static double weight(double t) {
+		double cosh = Math.cosh(0.5 * Math.PI * Math.sinh(t));
+		return 0.5 * Math.PI * Math.cosh(t) / (cosh * cosh);
+	}
+
+	/**
+	 * @return the distance of the node at t to the nearest end point, computed
+	 *         directly so that it does not cancel out near the end points
+	 */
+	private static double distance(double t, double halfLength) {
+		return halfLength * 2 / (Math.exp(Math.PI * Math.sinh(Math.abs(t))) + 1);
+	}
+
+	/**
+	 * @return the largest t, in steps of 1/64 up to MAX_T, whose node is still
+	 *         distinct from the end point, which lies in the given direction
+	 *         (-1 for the upper limit, +1 for the lower limit) from it
+	 */
+	private static double maxT(double end, double halfLength, double direction) {
+		double t = MAX_T;
+		while (t > 1.0) {
+			double node = end + direction * distance(t, halfLength);
+			if (node != end && weight(t) > 0.0)
+				return t;
+			t -= 1.0 / 64;
+		}
+		return t;
+	}
+
+}
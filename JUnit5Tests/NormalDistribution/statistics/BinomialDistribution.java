@@ -0,0 +1,102 @@
+package statistics;
+
+import numerics.SpecialFunctions;
+
+/**
+ * Distribution of the number of successes in a given number of independent
+ * trials with the same probability of success.
+ * 
+ */
+public class BinomialDistribution extends DiscreteDistribution {
+
+	private int trials;
+	private double probability;
+	// terms of the logarithm of the mass function that only depend on the parameters
+	private double logTrialsFactorial;
+	private double logProbability;
+	private double logComplement;
+
+	public BinomialDistribution(int trials, double probability) {
+		if (trials < 0)
+			throw new IllegalArgumentException("violates: trials >= 0");
+		if (!(probability >= 0 && probability <= 1))
+			throw new IllegalArgumentException("violates: 0 <= probability <= 1");
+		this.trials = trials;
+		this.probability = probability;
+		logTrialsFactorial = SpecialFunctions.logGamma(trials + 1.0);
+		logProbability = Math.log(probability);
+		logComplement = Math.log1p(-probability);
+	}
+
+	public BinomialDistribution(String name, int trials, double probability) {
+		this(trials, probability);
+		register(name);
+	}
+
+	public int getTrials() {
+		return trials;
+	}
+
+	public double getProbability() {
+		return probability;
+	}
+
+	public double getMean() {
+		return trials * probability;
+	}
+
+	public double getStddev() {
+		return Math.sqrt(trials * probability * (1 - probability));
+	}
+
+	public double probabilityMassFunction(long k) {
+		if (k < 0 || k > trials)
+			return 0.0;
+		if (probability == 0 || probability == 1)
+			return k == (probability == 0 ? 0 : trials) ? 1.0 : 0.0;
+		double logBinomial = logTrialsFactorial - SpecialFunctions.logGamma(k + 1.0)
+				- SpecialFunctions.logGamma(trials - k + 1.0);
+		return Math.exp(logBinomial + k * logProbability + (trials - k) * logComplement);
+	}
+
+	public double cumulativeProbability(long k) {
+		if (k < 0)
+			return 0.0;
+		if (k >= trials)
+			return 1.0;
+		return SpecialFunctions.regularizedBeta(1 - probability, trials - k, k + 1.0);
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		long temp;
+		result = prime * result + trials;
+		temp = Double.doubleToLongBits(probability);
+		result = prime * result + (int) (temp ^ (temp >>> 32));
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		BinomialDistribution other = (BinomialDistribution) obj;
+		if (trials != other.trials)
+			return false;
+		if (Double.doubleToLongBits(probability) != Double.doubleToLongBits(other.probability))
+			return false;
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "B(" + trials + ", " + probability + ")";
+	}
+
+}
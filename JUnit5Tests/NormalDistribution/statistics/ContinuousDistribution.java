@@ -0,0 +1,42 @@
+package statistics;
+
+import numerics.Function;
+
+/**
+ * Base class of the continuous distributions whose cumulative distribution
+ * function has a closed form (or a special function form), so that
+ * probabilities are calculated without numerical integration.
+ * 
+ */
+public abstract class ContinuousDistribution implements ProbabilityDistribution, Function {
+
+	private String name;
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Names the distribution and adds it to the ProbabilityDistribution registry.
+	 */
+	protected void register(String name) {
+		this.name = name;
+		ProbabilityDistribution.add(name, this);
+	}
+
+	/**
+	 * The cumulative distribution function: probability of random variable <= b.
+	 */
+	public abstract double calcLeftProbability(double b);
+
+	public double calcRangeProbability(int a, int b) {
+		if (a > b)
+			throw new IllegalArgumentException("violates: a <= b");
+		return calcLeftProbability(b) - calcLeftProbability(a);
+	}
+
+	public double evaluate(double x) {
+		return probabilityDensityFunction(x);
+	}
+
+}
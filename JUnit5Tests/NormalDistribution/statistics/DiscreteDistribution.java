@@ -0,0 +1,49 @@
+package statistics;
+
+/**
+ * Base class of the distributions of integer random variables. The
+ * probabilityDensityFunction is the probability mass function at integer
+ * arguments, and 0 elsewhere.
+ * 
+ */
+public abstract class DiscreteDistribution implements ProbabilityDistribution {
+
+	private String name;
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Names the distribution and adds it to the ProbabilityDistribution registry.
+	 */
+	protected void register(String name) {
+		this.name = name;
+		ProbabilityDistribution.add(name, this);
+	}
+
+	/**
+	 * @return the probability of random variable == k
+	 */
+	public abstract double probabilityMassFunction(long k);
+
+	/**
+	 * @return the probability of random variable <= k
+	 */
+	public abstract double cumulativeProbability(long k);
+
+	public double probabilityDensityFunction(double x) {
+		return x == Math.rint(x) ? probabilityMassFunction((long) x) : 0.0;
+	}
+
+	public double calcLeftProbability(double b) {
+		return cumulativeProbability((long) Math.floor(b));
+	}
+
+	public double calcRangeProbability(int a, int b) {
+		if (a > b)
+			throw new IllegalArgumentException("violates: a <= b");
+		return cumulativeProbability(b) - cumulativeProbability((long) a - 1);
+	}
+
+}
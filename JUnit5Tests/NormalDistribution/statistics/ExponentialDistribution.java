@@ -0,0 +1,71 @@
+package statistics;
+
+/**
+ * Exponential distribution with a given rate (the inverse of its mean).
+ * 
+ */
+public class ExponentialDistribution extends ContinuousDistribution {
+
+	private double rate;
+
+	public ExponentialDistribution(double rate) {
+		if (!(rate > 0))
+			throw new IllegalArgumentException("violates: rate > 0");
+		this.rate = rate;
+	}
+
+	public ExponentialDistribution(String name, double rate) {
+		this(rate);
+		register(name);
+	}
+
+	public double getRate() {
+		return rate;
+	}
+
+	public double getMean() {
+		return 1 / rate;
+	}
+
+	public double getStddev() {
+		return 1 / rate;
+	}
+
+	public double probabilityDensityFunction(double x) {
+		return x < 0 ? 0.0 : rate * Math.exp(-rate * x);
+	}
+
+	public double calcLeftProbability(double b) {
+		return b <= 0 ? 0.0 : -Math.expm1(-rate * b);
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		long temp;
+		temp = Double.doubleToLongBits(rate);
+		result = prime * result + (int) (temp ^ (temp >>> 32));
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		ExponentialDistribution other = (ExponentialDistribution) obj;
+		if (Double.doubleToLongBits(rate) != Double.doubleToLongBits(other.rate))
+			return false;
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "Exp(" + rate + ")";
+	}
+
+}
@@ -0,0 +1,56 @@
+package statistics;
+
+/**
+ * Estimates an exponentially weighted mean and standard deviation, where the
+ * weight of each value decays by a factor of (1 - alpha) with every newer
+ * value. Suited to streams whose distribution drifts over time.
+ * 
+ */
+public class ExponentialEstimator implements NormalEstimator {
+
+	private final double alpha;
+	private long count;
+	private double mean;
+	private double variance;
+
+	/**
+	 * @param alpha weight of the newest value, in (0, 1]
+	 */
+	public ExponentialEstimator(double alpha) {
+		if (!(alpha > 0 && alpha <= 1))
+			throw new IllegalArgumentException("violates: 0 < alpha <= 1");
+		this.alpha = alpha;
+	}
+
+	public double getAlpha() {
+		return alpha;
+	}
+
+	@Override
+	public void accept(double x) {
+		if (count++ == 0) {
+			mean = x;
+			return;
+		}
+		double delta = x - mean;
+		double increment = alpha * delta;
+		mean += increment;
+		variance = (1 - alpha) * (variance + delta * increment);
+	}
+
+	@Override
+	public long getCount() {
+		return count;
+	}
+
+	@Override
+	public double getMean() {
+		return count == 0 ? Double.NaN : mean;
+	}
+
+	@Override
+	public double getStddev() {
+		return count == 0 ? Double.NaN : Math.sqrt(variance);
+	}
+
+}
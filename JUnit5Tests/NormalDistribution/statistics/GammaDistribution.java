@@ -0,0 +1,89 @@
+package statistics;
+
+import numerics.SpecialFunctions;
+
+/**
+ * Gamma distribution with a given shape and scale.
+ * 
+ */
+public class GammaDistribution extends ContinuousDistribution {
+
+	private double shape;
+	private double scale;
+	private double logCoefficient; // log of the normalizing constant of the density
+
+	public GammaDistribution(double shape, double scale) {
+		if (!(shape > 0) || !(scale > 0))
+			throw new IllegalArgumentException("violates: shape > 0 and scale > 0");
+		this.shape = shape;
+		this.scale = scale;
+		logCoefficient = -SpecialFunctions.logGamma(shape) - shape * Math.log(scale);
+	}
+
+	public GammaDistribution(String name, double shape, double scale) {
+		this(shape, scale);
+		register(name);
+	}
+
+	public double getShape() {
+		return shape;
+	}
+
+	public double getScale() {
+		return scale;
+	}
+
+	public double getMean() {
+		return shape * scale;
+	}
+
+	public double getStddev() {
+		return Math.sqrt(shape) * scale;
+	}
+
+	public double probabilityDensityFunction(double x) {
+		if (x < 0)
+			return 0.0;
+		if (x == 0)
+			return shape < 1 ? Double.POSITIVE_INFINITY : shape == 1 ? 1 / scale : 0.0;
+		return Math.exp((shape - 1) * Math.log(x) - x / scale + logCoefficient);
+	}
+
+	public double calcLeftProbability(double b) {
+		return b <= 0 ? 0.0 : SpecialFunctions.regularizedGammaP(shape, b / scale);
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		long temp;
+		temp = Double.doubleToLongBits(shape);
+		result = prime * result + (int) (temp ^ (temp >>> 32));
+		temp = Double.doubleToLongBits(scale);
+		result = prime * result + (int) (temp ^ (temp >>> 32));
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		GammaDistribution other = (GammaDistribution) obj;
+		if (Double.doubleToLongBits(shape) != Double.doubleToLongBits(other.shape))
+			return false;
+		if (Double.doubleToLongBits(scale) != Double.doubleToLongBits(other.scale))
+			return false;
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "Gamma(" + shape + ", " + scale + ")";
+	}
+
+}
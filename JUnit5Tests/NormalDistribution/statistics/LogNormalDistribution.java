@@ -0,0 +1,89 @@
+package statistics;
+
+import numerics.SpecialFunctions;
+
+/**
+ * Distribution of a random variable whose logarithm is normally distributed
+ * with mean mu and standard deviation sigma.
+ * 
+ */
+public class LogNormalDistribution extends ContinuousDistribution {
+
+	private double mu;
+	private double sigma;
+
+	public LogNormalDistribution(double mu, double sigma) {
+		if (!(sigma > 0))
+			throw new IllegalArgumentException("violates: sigma > 0");
+		this.mu = mu;
+		this.sigma = sigma;
+	}
+
+	public LogNormalDistribution(String name, double mu, double sigma) {
+		this(mu, sigma);
+		register(name);
+	}
+
+	public double getMu() {
+		return mu;
+	}
+
+	public double getSigma() {
+		return sigma;
+	}
+
+	public double getMean() {
+		return Math.exp(mu + sigma * sigma / 2);
+	}
+
+	public double getStddev() {
+		return Math.sqrt(Math.expm1(sigma * sigma)) * getMean();
+	}
+
+	public double probabilityDensityFunction(double x) {
+		if (x <= 0)
+			return 0.0;
+		double z = (Math.log(x) - mu) / sigma;
+		return Math.exp(-z * z / 2) / (x * sigma * Math.sqrt(2 * Math.PI));
+	}
+
+	public double calcLeftProbability(double b) {
+		if (b <= 0)
+			return 0.0;
+		return 0.5 * SpecialFunctions.erfc(-(Math.log(b) - mu) / (sigma * Math.sqrt(2)));
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		long temp;
+		temp = Double.doubleToLongBits(mu);
+		result = prime * result + (int) (temp ^ (temp >>> 32));
+		temp = Double.doubleToLongBits(sigma);
+		result = prime * result + (int) (temp ^ (temp >>> 32));
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		LogNormalDistribution other = (LogNormalDistribution) obj;
+		if (Double.doubleToLongBits(mu) != Double.doubleToLongBits(other.mu))
+			return false;
+		if (Double.doubleToLongBits(sigma) != Double.doubleToLongBits(other.sigma))
+			return false;
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "LN(" + mu + ", " + sigma + ")";
+	}
+
+}
@@ -8,6 +8,7 @@ public class NormalDistribution implements ProbabilityDistribution, Function {
 	private double mean;
 	private double stdDev;
 	private String name;
+	private Integrator integrator = new SimpsonMethod();
 
 	public NormalDistribution(double mean, double stdDev) {
 		if (mean == 0 && stdDev == 0)
@@ -38,24 +39,77 @@ public class NormalDistribution implements ProbabilityDistribution, Function {
 		return name;
 	}
 
+	public Integrator getIntegrator() {
+		return integrator;
+	}
+
+	/**
+	 * Selects the numerical integration method used to calculate probabilities.
+	 * SimpsonMethod is used by default.
+	 */
+	public void setIntegrator(Integrator integrator) {
+		if (integrator == null)
+			throw new IllegalArgumentException();
+		this.integrator = integrator;
+	}
+
 	public double probabilityDensityFunction(double x) {
-		return 1 / (stdDev * Math.sqrt(2 * Math.PI)) * Math.exp(-(Math.pow((x - mean), 2) / 2 * Math.pow(stdDev, 2)));
+		double z = (x - mean) / stdDev;
+		return 1 / (stdDev * Math.sqrt(2 * Math.PI)) * Math.exp(-z * z / 2);
 	}
 
 	public double evaluate(double x) {
 		return probabilityDensityFunction(x);
 	}
 
+	@Override
+	public void evaluate(double[] xs, double[] out) {
+		double coefficient = 1 / (stdDev * Math.sqrt(2 * Math.PI));
+		for (int i = 0; i < xs.length; i++) {
+			double z = (xs[i] - mean) / stdDev;
+			out[i] = coefficient * Math.exp(-z * z / 2);
+		}
+	}
+
 	public double calcRangeProbability(int a, int b) {
-		return SimpsonMethod.calcIntegral(this, a, b, PRECISION);
+		return integrate(a, b);
 	}
 
 	public double calcLeftProbability(double b) {
 		if (b == mean)
 			return 0.5;
 		else if (b > mean) 
-			return 0.5 + SimpsonMethod.calcIntegral(this, mean, b, PRECISION);
-		return 0.5 - SimpsonMethod.calcIntegral(this, b, mean, PRECISION);
+			return 0.5 + integrate(mean, b);
+		return 0.5 - integrate(b, mean);
+	}
+
+	/**
+	 * @throws ArithmeticException if the integrator runs out of evaluations
+	 *         before reaching PRECISION
+	 */
+	private double integrate(double a, double b) {
+		// Events are only created while the integration metrics are enabled
+		ProbabilityEvent event = null;
+		if (IntegrationMetrics.isEnabled()) {
+			event = new ProbabilityEvent();
+			event.begin();
+		}
+		IntegrationResult result = integrator.integrate(this, a, b, PRECISION);
+		if (event != null) {
+			event.end();
+			if (event.shouldCommit()) {
+				event.distribution = toString();
+				event.integrator = integrator.getClass().getSimpleName();
+				event.lower = a;
+				event.upper = b;
+				event.probability = result.getValue();
+				event.evaluations = result.getEvaluations();
+				event.commit();
+			}
+		}
+		if (!result.isConverged())
+			throw new ArithmeticException("no convergence within " + result.getEvaluations() + " evaluations");
+		return result.getValue();
 	}
 
 	@Override
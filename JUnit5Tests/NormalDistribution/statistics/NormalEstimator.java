@@ -0,0 +1,41 @@
+package statistics;
+
+import java.util.function.DoubleConsumer;
+
+/**
+ * Online estimator of the parameters of a normal distribution. Values are fed
+ * one at a time, through accept, and the estimates are available at any moment
+ * without keeping the values seen so far.
+ * 
+ */
+public interface NormalEstimator extends DoubleConsumer {
+
+	/**
+	 * @return the number of values the estimates are based on
+	 */
+	long getCount();
+
+	/**
+	 * @return the estimated mean, NaN if there are no values
+	 */
+	double getMean();
+
+	/**
+	 * @return the estimated standard deviation, NaN if there are no values
+	 */
+	double getStddev();
+
+	/**
+	 * @return a normal distribution with the estimated mean and standard deviation
+	 * @throws IllegalStateException if there are no values, or the estimated
+	 *         standard deviation is 0 (a single value, or all values equal)
+	 */
+	default NormalDistribution toDistribution() {
+		if (getCount() == 0)
+			throw new IllegalStateException("no values");
+		if (getStddev() == 0)
+			throw new IllegalStateException("zero standard deviation, from " + getCount() + " equal values");
+		return new NormalDistribution(getMean(), getStddev());
+	}
+
+}
@@ -0,0 +1,75 @@
+package statistics;
+
+import numerics.SpecialFunctions;
+
+/**
+ * Poisson distribution with a given mean (rate of events).
+ * 
+ */
+public class PoissonDistribution extends DiscreteDistribution {
+
+	private double lambda;
+	private double logLambda;
+
+	public PoissonDistribution(double lambda) {
+		if (!(lambda > 0))
+			throw new IllegalArgumentException("violates: lambda > 0");
+		this.lambda = lambda;
+		logLambda = Math.log(lambda);
+	}
+
+	public PoissonDistribution(String name, double lambda) {
+		this(lambda);
+		register(name);
+	}
+
+	public double getMean() {
+		return lambda;
+	}
+
+	public double getStddev() {
+		return Math.sqrt(lambda);
+	}
+
+	public double probabilityMassFunction(long k) {
+		if (k < 0)
+			return 0.0;
+		return Math.exp(k * logLambda - lambda - SpecialFunctions.logGamma(k + 1.0));
+	}
+
+	public double cumulativeProbability(long k) {
+		if (k < 0)
+			return 0.0;
+		return SpecialFunctions.regularizedGammaQ(k + 1.0, lambda);
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		long temp;
+		temp = Double.doubleToLongBits(lambda);
+		result = prime * result + (int) (temp ^ (temp >>> 32));
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		PoissonDistribution other = (PoissonDistribution) obj;
+		if (Double.doubleToLongBits(lambda) != Double.doubleToLongBits(other.lambda))
+			return false;
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "Poisson(" + lambda + ")";
+	}
+
+}
@@ -0,0 +1,37 @@
+package statistics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for a probability calculated by numerical integration.
+ * Only emitted while IntegrationMetrics are enabled, like numerics.Integration.
+ * 
+ */
+@Name("statistics.Probability")
+@Label("Probability")
+@Category({ "JUnit5Tests", "Statistics" })
+@Description("Probability of a distribution calculated by numerical integration")
+class ProbabilityEvent extends jdk.jfr.Event {
+
+	@Label("Distribution")
+	String distribution;
+
+	@Label("Integrator")
+	String integrator;
+
+	@Label("Lower Limit")
+	double lower;
+
+	@Label("Upper Limit")
+	double upper;
+
+	@Label("Probability")
+	double probability;
+
+	@Label("Function Evaluations")
+	long evaluations;
+
+}
@@ -0,0 +1,68 @@
+package statistics;
+
+/**
+ * Estimates the mean and the (sample) standard deviation of the last values
+ * seen, up to a fixed window size. The oldest value is removed from the
+ * estimates as each new one is added, so every update takes constant time; the
+ * window itself is kept in a circular buffer.
+ * 
+ */
+public class SlidingWindowEstimator implements NormalEstimator {
+
+	private final double[] window;
+	private int next; // position of the oldest value once the window is full
+	private int size;
+	private double mean;
+	private double m2; // sum of squared differences to the mean
+
+	public SlidingWindowEstimator(int windowSize) {
+		if (windowSize <= 0)
+			throw new IllegalArgumentException("violates: windowSize > 0");
+		window = new double[windowSize];
+	}
+
+	public int getWindowSize() {
+		return window.length;
+	}
+
+	@Override
+	public void accept(double x) {
+		if (size == window.length) {
+			// Welford's update in reverse for the value leaving the window
+			double oldest = window[next];
+			double delta = oldest - mean;
+			if (--size == 0) {
+				mean = 0.0;
+				m2 = 0.0;
+			} else {
+				mean -= delta / size;
+				m2 -= delta * (oldest - mean);
+			}
+		}
+		window[next] = x;
+		next = (next + 1) % window.length;
+		size++;
+		double delta = x - mean;
+		mean += delta / size;
+		m2 += delta * (x - mean);
+	}
+
+	@Override
+	public long getCount() {
+		return size;
+	}
+
+	@Override
+	public double getMean() {
+		return size == 0 ? Double.NaN : mean;
+	}
+
+	@Override
+	public double getStddev() {
+		if (size == 0)
+			return Double.NaN;
+		// removals can leave m2 slightly below 0 when all values are equal
+		return size == 1 ? 0.0 : Math.sqrt(Math.max(m2, 0.0) / (size - 1));
+	}
+
+}
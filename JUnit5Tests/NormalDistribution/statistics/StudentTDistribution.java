@@ -0,0 +1,90 @@
+package statistics;
+
+import numerics.SpecialFunctions;
+
+/**
+ * Student's t distribution with a given number of degrees of freedom.
+ * 
+ */
+public class StudentTDistribution extends ContinuousDistribution {
+
+	private double degreesOfFreedom;
+	private double logCoefficient; // log of the normalizing constant of the density
+
+	public StudentTDistribution(double degreesOfFreedom) {
+		if (!(degreesOfFreedom > 0))
+			throw new IllegalArgumentException("violates: degreesOfFreedom > 0");
+		this.degreesOfFreedom = degreesOfFreedom;
+		logCoefficient = SpecialFunctions.logGamma((degreesOfFreedom + 1) / 2)
+				- SpecialFunctions.logGamma(degreesOfFreedom / 2) - 0.5 * Math.log(degreesOfFreedom * Math.PI);
+	}
+
+	public StudentTDistribution(String name, double degreesOfFreedom) {
+		this(degreesOfFreedom);
+		register(name);
+	}
+
+	public double getDegreesOfFreedom() {
+		return degreesOfFreedom;
+	}
+
+	/**
+	 * @return 0, or NaN if degreesOfFreedom <= 1 (undefined mean)
+	 */
+	public double getMean() {
+		return degreesOfFreedom > 1 ? 0.0 : Double.NaN;
+	}
+
+	/**
+	 * @return the standard deviation, infinite if 1 < degreesOfFreedom <= 2 and
+	 *         NaN if degreesOfFreedom <= 1
+	 */
+	public double getStddev() {
+		if (degreesOfFreedom > 2)
+			return Math.sqrt(degreesOfFreedom / (degreesOfFreedom - 2));
+		return degreesOfFreedom > 1 ? Double.POSITIVE_INFINITY : Double.NaN;
+	}
+
+	public double probabilityDensityFunction(double x) {
+		double v = degreesOfFreedom;
+		return Math.exp(logCoefficient - (v + 1) / 2 * Math.log1p(x * x / v));
+	}
+
+	public double calcLeftProbability(double b) {
+		if (Double.isInfinite(b))
+			return b > 0 ? 1.0 : 0.0;
+		double v = degreesOfFreedom;
+		double tail = 0.5 * SpecialFunctions.regularizedBeta(v / (v + b * b), v / 2, 0.5);
+		return b > 0 ? 1.0 - tail : tail;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		long temp;
+		temp = Double.doubleToLongBits(degreesOfFreedom);
+		result = prime * result + (int) (temp ^ (temp >>> 32));
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		StudentTDistribution other = (StudentTDistribution) obj;
+		if (Double.doubleToLongBits(degreesOfFreedom) != Double.doubleToLongBits(other.degreesOfFreedom))
+			return false;
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "t(" + degreesOfFreedom + ")";
+	}
+
+}
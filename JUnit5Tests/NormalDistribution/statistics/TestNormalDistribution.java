@@ -4,10 +4,20 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import org.junit.jupiter.api.Test;
 
 import numerics.Function;
+import numerics.GaussKronrod;
+import numerics.IntegrationMetrics;
+import numerics.IntegrationResult;
+import numerics.Integrator;
+import numerics.SimpsonMethod;
+import numerics.SpecialFunctions;
+import numerics.TanhSinh;
 
 public class TestNormalDistribution {
 
@@ -69,9 +79,26 @@ public class TestNormalDistribution {
 		assertEquals(0.3989423, d.probabilityDensityFunction(0.0), precision);
 		assertEquals(0.2419707, d.probabilityDensityFunction(1.0), precision);
 		assertEquals(0.2419707, d.probabilityDensityFunction(-1.0), precision);
+		assertEquals(0.1994711, new NormalDistribution(0.0, 2.0).probabilityDensityFunction(0.0), precision);
+		assertEquals(0.1209854, new NormalDistribution(0.0, 2.0).probabilityDensityFunction(2.0), precision);
 		isInterface(Function.class);
 	}
 
+	@Test
+	public void testBatchEvaluate() {
+		double[] xs = { -3.0, -1.0, 0.0, 0.5, 2.0 };
+		double[] out = new double[xs.length];
+		NormalDistribution n = new NormalDistribution(1.0, 2.0);
+		n.evaluate(xs, out);
+		for (int i = 0; i < xs.length; i++)
+			assertEquals(n.evaluate(xs[i]), out[i], DELTA);
+
+		// Functions that do not override the batch contract fall back to evaluate(x)
+		Function square = x -> x * x;
+		square.evaluate(xs, out);
+		assertArrayEquals(new double[] { 9.0, 1.0, 0.0, 0.25, 4.0 }, out, DELTA);
+	}
+
 	@Test
 	public void testCalcRangeProbability() {
 		// calcRangeProbability(a,b) : probability of random variable
@@ -91,6 +118,249 @@ public class TestNormalDistribution {
 		assertEquals(0.5 - prob2sigma, n.calcLeftProbability(-1.0), precision);
 	}
 
+	@Test
+	public void testCalcIntegralParallel() {
+		// sqrt(x) needs millions of segments to converge, which exercises the
+		// parallel sums; the result must not depend on thread scheduling
+		Function sqrt = x -> Math.sqrt(x);
+		double parallel = SimpsonMethod.calcIntegralParallel(sqrt, 0, 1, 1E-10);
+		assertEquals(2.0 / 3, parallel, 1E-9);
+		assertEquals(SimpsonMethod.calcIntegral(sqrt, 0, 1, 1E-10), parallel, 1E-12);
+		assertEquals(parallel, SimpsonMethod.calcIntegralParallel(sqrt, 0, 1, 1E-10), 0.0);
+	}
+
+	@Test
+	public void testCalcIntegrals() {
+		NormalDistribution n = new NormalDistribution(0, 1);
+		double[] integrals = SimpsonMethod.calcIntegrals(n, new double[] { 0, -2, -2 }, new double[] { 2, 0, 2 }, 1E-10);
+		assertEquals(prob2sigma, integrals[0], precision);
+		assertEquals(prob2sigma, integrals[1], precision);
+		assertEquals(2 * prob2sigma, integrals[2], precision);
+		// The share of the error of a tiny piece would underflow to 0
+		integrals = SimpsonMethod.calcIntegrals(n, new double[] { 0, Double.MIN_VALUE }, new double[] { 1, 1 }, 1E-10);
+		assertEquals(integrals[0], integrals[1], 1E-10);
+		assertEquals(0.341344746, integrals[0], precision);
+		assertThrows(IllegalArgumentException.class,
+				() -> SimpsonMethod.calcIntegrals(n, new double[] { 0 }, new double[] { 1, 2 }, 1E-10));
+	}
+
+	@Test
+	public void testIntegrators() {
+		NormalDistribution n = new NormalDistribution(0, 1);
+		for (Integrator integrator : new Integrator[] { new SimpsonMethod(), new GaussKronrod(), new TanhSinh() }) {
+			IntegrationResult result = integrator.integrate(n, 0, 2, 1E-10);
+			assertTrue(result.isConverged());
+			assertTrue(result.getErrorEstimate() <= 1E-10);
+			assertEquals(prob2sigma, result.getValue(), precision);
+
+			n.setIntegrator(integrator);
+			assertSame(integrator, n.getIntegrator());
+			assertEquals(2 * prob2sigma, n.calcRangeProbability(-2, 2), precision);
+			assertEquals(0.5 - prob2sigma, n.calcLeftProbability(-2.0), precision);
+		}
+	}
+
+	@Test
+	public void testInfiniteRanges() {
+		NormalDistribution n = new NormalDistribution(1, 2);
+		for (Integrator integrator : new Integrator[] { new GaussKronrod(), new TanhSinh() }) {
+			assertEquals(1.0, integrator.integrate(n, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, 1E-10).getValue(), 1E-9);
+			assertEquals(0.5, integrator.integrate(n, 1, Double.POSITIVE_INFINITY, 1E-10).getValue(), 1E-9);
+			assertEquals(0.5 - prob2sigma, integrator.integrate(n, Double.NEGATIVE_INFINITY, -3, 1E-10).getValue(), precision);
+		}
+		assertThrows(IllegalArgumentException.class, () -> new SimpsonMethod().integrate(n, 0, Double.POSITIVE_INFINITY, 1E-10));
+	}
+
+	@Test
+	public void testOffCentreInfiniteRanges() {
+		// The mass is far from 0 relative to the spread, located by probing or given
+		NormalDistribution n50 = new NormalDistribution(50, 1);
+		NormalDistribution n200 = new NormalDistribution(200, 1);
+		double inf = Double.POSITIVE_INFINITY;
+		for (Integrator integrator : new Integrator[] { new GaussKronrod(), new TanhSinh() }) {
+			IntegrationResult result = integrator.integrate(n50, -inf, inf, 1E-10);
+			assertTrue(result.isConverged());
+			assertEquals(1.0, result.getValue(), 1E-9);
+			assertEquals(1.0, integrator.integrate(n200, 0, inf, 1E-10).getValue(), 1E-9);
+			assertEquals(1.0, integrator.integrate(n50, -inf, inf, 1E-10, 50, 1).getValue(), 1E-9);
+			assertEquals(0.5 + prob2sigma, integrator.integrate(n200, -inf, 202, 1E-10, 200, 1).getValue(), precision);
+			// Too narrow to be found by probing: all samples are 0, which is not a result
+			result = integrator.integrate(new NormalDistribution(1E6, 1), -inf, inf, 1E-10);
+			assertFalse(result.isConverged());
+		}
+	}
+
+	@Test
+	public void testEvaluationBudget() {
+		// 1/sqrt(x) is singular at 0, so the budget runs out before convergence
+		Function singular = x -> x == 0 ? 0 : 1 / Math.sqrt(x);
+		for (Integrator integrator : new Integrator[] { new SimpsonMethod(1000, false), new GaussKronrod(1000), new TanhSinh(20) }) {
+			IntegrationResult result = integrator.integrate(singular, 0, 1, 1E-12);
+			assertFalse(result.isConverged());
+			assertTrue(result.getEvaluations() <= 1000);
+		}
+		// Probabilities are not returned unless the integral converged
+		NormalDistribution n = new NormalDistribution(0, 1);
+		n.setIntegrator(new SimpsonMethod(100, false));
+		assertThrows(ArithmeticException.class, () -> n.calcRangeProbability(-5, 5));
+		assertThrows(ArithmeticException.class, () -> n.calcLeftProbability(5));
+		// tanh-sinh handles the end point singularity without evaluating it
+		assertEquals(2.0, new TanhSinh().integrate(singular, 0, 1, 1E-10).getValue(), 1E-9);
+	}
+
+	@Test
+	public void testIntegrationMetrics() {
+		IntegrationMetrics.reset();
+		NormalDistribution n = new NormalDistribution(0, 1);
+		n.calcRangeProbability(0, 2);
+		assertEquals(0, IntegrationMetrics.getIntegrations()); // disabled by default
+
+		IntegrationMetrics.setEnabled(true);
+		try {
+			IntegrationResult simpson = new SimpsonMethod().integrate(n, 0, 2, 1E-10);
+			IntegrationResult kronrod = new GaussKronrod().integrate(n, 0, 2, 1E-10);
+			assertEquals(2, IntegrationMetrics.getIntegrations());
+			assertEquals(simpson.getEvaluations() + kronrod.getEvaluations(), IntegrationMetrics.getEvaluations());
+			assertEquals(simpson.getRefinements() + kronrod.getRefinements(), IntegrationMetrics.getRefinements());
+			assertEquals(simpson.getEvaluations(), IntegrationMetrics.getEvaluationsPerIntegral().getMax());
+			assertEquals(0, IntegrationMetrics.getUnconverged());
+		} finally {
+			IntegrationMetrics.setEnabled(false);
+			IntegrationMetrics.reset();
+		}
+	}
+
+	@Test
+	public void testWelfordEstimator() {
+		double[] values = { 2, 4, 4, 4, 5, 5, 7, 9 };
+		NormalDistribution n = WelfordEstimator.fit(DoubleStream.of(values));
+		assertEquals(5.0, n.getMean(), DELTA);
+		assertEquals(Math.sqrt(32.0 / 7), n.getStddev(), DELTA);
+
+		// Merging partial estimates gives the same result as a single pass
+		WelfordEstimator first = new WelfordEstimator(), second = new WelfordEstimator();
+		DoubleStream.of(values).limit(3).forEach(first);
+		DoubleStream.of(values).skip(3).forEach(second);
+		first.combine(second);
+		assertEquals(8, first.getCount());
+		assertEquals(n.getMean(), first.getMean(), DELTA);
+		assertEquals(n.getStddev(), first.getStddev(), DELTA);
+
+		NormalDistribution p = DoubleStream.iterate(0, x -> x + 1).limit(100_000).parallel()
+				.collect(WelfordEstimator::new, WelfordEstimator::accept, WelfordEstimator::combine).toDistribution();
+		assertEquals(49_999.5, p.getMean(), 1E-9);
+		NormalDistribution q = Stream.iterate(0.0, x -> x + 1).limit(100_000).collect(WelfordEstimator.toNormalDistribution());
+		assertEquals(p.getMean(), q.getMean(), 1E-9);
+		assertEquals(p.getStddev(), q.getStddev(), 1E-9);
+		assertThrows(IllegalStateException.class, () -> new WelfordEstimator().toDistribution());
+		// A distribution needs some spread
+		assertThrows(IllegalStateException.class, () -> WelfordEstimator.fit(DoubleStream.of(0, 0, 0)));
+		assertThrows(IllegalStateException.class, () -> WelfordEstimator.fit(DoubleStream.of(2.5)));
+		assertThrows(IllegalStateException.class, () -> WelfordEstimator.fit(DoubleStream.of(7, 7, 7, 7)));
+	}
+
+	@Test
+	public void testExponentialEstimator() {
+		ExponentialEstimator e = new ExponentialEstimator(0.5);
+		e.accept(1.0);
+		assertEquals(1.0, e.getMean(), DELTA);
+		assertEquals(0.0, e.getStddev(), DELTA);
+		assertThrows(IllegalStateException.class, () -> e.toDistribution());
+		e.accept(3.0);
+		assertEquals(2.0, e.getMean(), DELTA);
+		assertEquals(1.0, e.getStddev(), DELTA);
+		// Old values fade out
+		for (int i = 0; i < 100; i++)
+			e.accept(10.0);
+		assertEquals(10.0, e.getMean(), 1E-12);
+		assertEquals(0.0, e.getStddev(), 1E-12);
+		assertThrows(IllegalArgumentException.class, () -> new ExponentialEstimator(0));
+	}
+
+	@Test
+	public void testSlidingWindowEstimator() {
+		SlidingWindowEstimator e = new SlidingWindowEstimator(4);
+		for (double x : new double[] { 100, 100, 2, 4, 6, 8 })
+			e.accept(x);
+		assertEquals(4, e.getCount());
+		assertEquals(5.0, e.getMean(), 1E-12);
+		assertEquals(Math.sqrt(20.0 / 3), e.getStddev(), 1E-12);
+		assertEquals(new NormalDistribution(e.getMean(), e.getStddev()), e.toDistribution());
+		assertThrows(IllegalArgumentException.class, () -> new SlidingWindowEstimator(0));
+	}
+
+	@Test
+	public void testSpecialFunctions() {
+		assertEquals(Math.log(24), SpecialFunctions.logGamma(5), 1E-13);
+		assertEquals(Math.log(Math.sqrt(Math.PI)), SpecialFunctions.logGamma(0.5), 1E-13);
+		assertEquals(0.8427007929497149, SpecialFunctions.erf(1), 1E-14);
+		assertEquals(1.5374597944280349E-12, SpecialFunctions.erfc(5), 1E-24);
+		assertEquals(1 - 2 / Math.E, SpecialFunctions.regularizedGammaP(2, 1), 1E-14);
+		assertEquals(0.5, SpecialFunctions.regularizedBeta(0.5, 3, 3), 1E-14);
+		assertThrows(IllegalArgumentException.class, () -> SpecialFunctions.regularizedBeta(2, 1, 1));
+	}
+
+	@Test
+	public void testContinuousDistributions() {
+		ProbabilityDistribution e = new ExponentialDistribution(2);
+		assertEquals(1 - Math.exp(-2), e.calcLeftProbability(1), DELTA);
+		assertEquals(Math.exp(-2) - Math.exp(-4), e.calcRangeProbability(1, 2), DELTA);
+
+		ProbabilityDistribution ln = new LogNormalDistribution(0, 1);
+		assertEquals(0.5, ln.calcLeftProbability(1), 1E-14);
+		assertEquals(0.5 + 0.341344746, ln.calcLeftProbability(Math.E), 1E-9);
+		assertEquals(Math.exp(0.5), ln.getMean(), DELTA);
+
+		ProbabilityDistribution cauchy = new StudentTDistribution(1);
+		assertEquals(0.75, cauchy.calcLeftProbability(1), 1E-14);
+		assertEquals(0.5, cauchy.calcRangeProbability(-1, 1), 1E-14);
+		assertEquals(0.975, new StudentTDistribution(10).calcLeftProbability(2.228138852), 1E-9);
+		assertEquals(0.025, new StudentTDistribution(10).calcLeftProbability(-2.228138852), 1E-9);
+
+		ProbabilityDistribution g = new GammaDistribution(2, 1);
+		assertEquals(1 - 2 / Math.E, g.calcLeftProbability(1), 1E-14);
+		assertEquals(Math.exp(-1), g.probabilityDensityFunction(1), DELTA);
+		assertEquals(2 * prob2sigma, new GammaDistribution(0.5, 2).calcLeftProbability(4), precision);
+		// P(a, a) = 1/2 + 1 / (3 sqrt(2 pi a)) + O(a^-3/2)
+		assertEquals(0.5 + 1 / (3 * Math.sqrt(2 * Math.PI * 1E8)), new GammaDistribution(1E8, 1).calcLeftProbability(1E8), 1E-12);
+	}
+
+	@Test
+	public void testDiscreteDistributions() {
+		ProbabilityDistribution b = new BinomialDistribution(10, 0.5);
+		assertEquals(252.0 / 1024, b.probabilityDensityFunction(5), 1E-14);
+		assertEquals(0.0, b.probabilityDensityFunction(5.5), DELTA);
+		assertEquals(638.0 / 1024, b.calcLeftProbability(5.7), 1E-14);
+		assertEquals(672.0 / 1024, b.calcRangeProbability(4, 6), 1E-14);
+		assertEquals(1.0, b.calcLeftProbability(10), DELTA);
+
+		ProbabilityDistribution p = new PoissonDistribution(3);
+		assertEquals(4.5 * Math.exp(-3), p.probabilityDensityFunction(2), 1E-15);
+		assertEquals(8.5 * Math.exp(-3), p.calcLeftProbability(2), 1E-14);
+		assertEquals(7.5 * Math.exp(-3), p.calcRangeProbability(1, 2), 1E-14);
+		assertEquals(0.0, p.calcLeftProbability(-1), DELTA);
+
+		// Large means use the quadrature of the incomplete gamma function
+		ProbabilityDistribution p150 = new PoissonDistribution(150);
+		assertEquals(IntStream.rangeClosed(0, 150).mapToDouble(p150::probabilityDensityFunction).sum(),
+				p150.calcLeftProbability(150), 1E-12);
+		// Q(a + 1, a) = 1/2 + 2 / (3 sqrt(2 pi a)) + O(a^-3/2)
+		assertEquals(0.5 + 2 / (3 * Math.sqrt(2 * Math.PI * 1E7)), new PoissonDistribution(1E7).calcLeftProbability(1E7), 1E-9);
+	}
+
+	@Test
+	public void testFindOtherDistributions() {
+		PoissonDistribution p = new PoissonDistribution("P", 3);
+		StudentTDistribution t = new StudentTDistribution("T", 5);
+		assertSame(p, ProbabilityDistribution.find("P"));
+		assertSame(t, ProbabilityDistribution.find("T"));
+		assertEquals("T", t.getName());
+		assertEquals("Poisson(3.0)", p + "");
+		fieldsArePrivateOrProtected(ContinuousDistribution.class, DiscreteDistribution.class,
+				ExponentialDistribution.class, LogNormalDistribution.class, StudentTDistribution.class,
+				GammaDistribution.class, BinomialDistribution.class, PoissonDistribution.class);
+	}
+
 	@Test
 	public void testEquals() {
 		NormalDistribution d1 = new NormalDistribution(0, 1);
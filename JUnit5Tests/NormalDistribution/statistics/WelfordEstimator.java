@@ -0,0 +1,80 @@
+package statistics;
+
+import java.util.stream.Collector;
+import java.util.stream.DoubleStream;
+
+/**
+ * Estimates the mean and the (sample) standard deviation of all values seen, by
+ * Welford's algorithm. Partial estimators of disjoint parts of a stream can be
+ * merged with combine, so the estimator can be used with parallel or
+ * partitioned streams:
+ * 
+ * <pre>
+ * WelfordEstimator e = values.parallel().collect(WelfordEstimator::new, WelfordEstimator::accept,
+ * 		WelfordEstimator::combine);
+ * </pre>
+ * 
+ */
+public class WelfordEstimator implements NormalEstimator {
+
+	private long count;
+	private double mean;
+	private double m2; // sum of squared differences to the mean
+
+	@Override
+	public void accept(double x) {
+		count++;
+		double delta = x - mean;
+		mean += delta / count;
+		m2 += delta * (x - mean);
+	}
+
+	/**
+	 * Merges the values seen by another estimator into this one (Chan et al.).
+	 */
+	public void combine(WelfordEstimator other) {
+		if (other.count == 0)
+			return;
+		long total = count + other.count;
+		double delta = other.mean - mean;
+		mean += delta * other.count / total;
+		m2 += other.m2 + delta * delta * ((double) count * other.count / total);
+		count = total;
+	}
+
+	@Override
+	public long getCount() {
+		return count;
+	}
+
+	@Override
+	public double getMean() {
+		return count == 0 ? Double.NaN : mean;
+	}
+
+	@Override
+	public double getStddev() {
+		if (count == 0)
+			return Double.NaN;
+		return count == 1 ? 0.0 : Math.sqrt(m2 / (count - 1));
+	}
+
+	/**
+	 * @return the normal distribution fitted to the values of a stream
+	 */
+	public static NormalDistribution fit(DoubleStream values) {
+		return values.collect(WelfordEstimator::new, WelfordEstimator::accept, WelfordEstimator::combine)
+				.toDistribution();
+	}
+
+	/**
+	 * @return a collector that fits a normal distribution to a stream of values
+	 */
+	public static Collector<Double, ?, NormalDistribution> toNormalDistribution() {
+		return Collector.of(WelfordEstimator::new, WelfordEstimator::accept, (e1, e2) -> {
+			e1.combine(e2);
+			return e1;
+		}, WelfordEstimator::toDistribution);
+	}
+
+}